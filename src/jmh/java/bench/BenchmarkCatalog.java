@@ -0,0 +1,147 @@
+package bench;
+
+import dal.ConnectionManager;
+import org.h2.jdbcx.JdbcDataSource;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Random;
+
+// Synthetic catalog in an in-memory H2 database running in SQL Server mode, standing in for the real server.
+// The data only depends on the size and the fixed seed, so every run and every release sees the same rows.
+public class BenchmarkCatalog {
+
+    public static final long SEED = 20240501L;
+    public static final int CATEGORY_COUNT = 24;
+
+    private static final String[] WORDS = {
+            "the", "last", "night", "star", "dark", "river", "city", "war", "love", "ghost",
+            "king", "return", "shadow", "summer", "blood", "island", "storm", "secret", "road", "dream",
+            "empire", "winter", "fire", "garden", "machine", "silent", "golden", "lost", "wild", "house"
+    };
+    private static final String[] CATEGORY_NAMES = {
+            "Action", "Adventure", "Animation", "Biography", "Comedy", "Crime", "Documentary", "Drama",
+            "Family", "Fantasy", "History", "Horror", "Music", "Musical", "Mystery", "Romance",
+            "Sci-Fi", "Short", "Sport", "Thriller", "War", "Western", "Film-Noir", "Superhero"
+    };
+
+    private BenchmarkCatalog() {
+    }
+
+    // Creates (or recreates) a database named after the size and fills it with movieCount movies.
+    public static ConnectionManager create(int movieCount) throws SQLException {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:catalog" + movieCount + ";MODE=MSSQLServer;DB_CLOSE_DELAY=-1");
+
+        ConnectionManager cm = new ConnectionManager(dataSource,
+                new ConnectionManager.PoolConfig(1, 4, Duration.ofMinutes(5), Duration.ofSeconds(30),
+                        Duration.ofSeconds(5), 2, 64));
+        cm.start();
+
+        try (Connection conn = cm.getConnection()) {
+            createSchema(conn);
+            fill(conn, movieCount);
+        }
+        return cm;
+    }
+
+    public static String randomTitle(Random random) {
+        int words = 1 + random.nextInt(4);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) sb.append(' ');
+            String word = WORDS[random.nextInt(WORDS.length)];
+            sb.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+        }
+        return sb.toString();
+    }
+
+    private static void createSchema(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute("DROP SCHEMA IF EXISTS dbo CASCADE");
+            st.execute("CREATE SCHEMA dbo");
+            st.execute("""
+                CREATE TABLE dbo.Movie (
+                    id INT IDENTITY PRIMARY KEY,
+                    title NVARCHAR(255) NOT NULL,
+                    imdbRating DECIMAL(3,1),
+                    personalRating DECIMAL(3,1),
+                    filePath NVARCHAR(500),
+                    lastViewed DATE
+                )
+                """);
+            st.execute("""
+                CREATE TABLE dbo.Category (
+                    id INT IDENTITY PRIMARY KEY,
+                    name NVARCHAR(100) NOT NULL
+                )
+                """);
+            st.execute("""
+                CREATE TABLE dbo.CatMovie (
+                    id INT IDENTITY PRIMARY KEY,
+                    MovieId INT NOT NULL REFERENCES dbo.Movie(id),
+                    CategoryId INT NOT NULL REFERENCES dbo.Category(id)
+                )
+                """);
+            st.execute("CREATE INDEX IX_CatMovie_Movie ON dbo.CatMovie (MovieId)");
+        }
+    }
+
+    private static void fill(Connection conn, int movieCount) throws SQLException {
+        Random random = new Random(SEED);
+        LocalDate today = LocalDate.of(2024, 5, 1);
+        conn.setAutoCommit(false);
+
+        try (PreparedStatement ps = conn.prepareStatement("INSERT INTO dbo.Category (name) VALUES (?)")) {
+            for (String name : CATEGORY_NAMES) {
+                ps.setString(1, name);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+
+        String insertMovie = """
+            INSERT INTO dbo.Movie (title, imdbRating, personalRating, filePath, lastViewed)
+            VALUES (?, ?, ?, ?, ?)
+            """;
+        try (PreparedStatement ps = conn.prepareStatement(insertMovie)) {
+            for (int i = 1; i <= movieCount; i++) {
+                ps.setString(1, randomTitle(random));
+                ps.setDouble(2, random.nextInt(101) / 10.0);
+                // about a third is rated, a quarter never watched, so getWarningType takes every branch
+                if (random.nextInt(3) == 0) ps.setDouble(3, random.nextInt(101) / 10.0);
+                else ps.setNull(3, Types.DECIMAL);
+                ps.setString(4, "movies/movie" + i + ".mp4");
+                if (random.nextInt(4) == 0) ps.setNull(5, Types.DATE);
+                else ps.setDate(5, Date.valueOf(today.minusDays(random.nextInt(3650))));
+                ps.addBatch();
+                if (i % 5000 == 0) ps.executeBatch();
+            }
+            ps.executeBatch();
+        }
+
+        try (PreparedStatement ps = conn.prepareStatement("INSERT INTO dbo.CatMovie (MovieId, CategoryId) VALUES (?, ?)")) {
+            int pending = 0;
+            for (int movieId = 1; movieId <= movieCount; movieId++) {
+                int links = 1 + random.nextInt(3);
+                int first = 1 + random.nextInt(CATEGORY_COUNT);
+                for (int k = 0; k < links; k++) {
+                    ps.setInt(1, movieId);
+                    ps.setInt(2, 1 + (first - 1 + k * 7) % CATEGORY_COUNT);
+                    ps.addBatch();
+                    if (++pending % 5000 == 0) ps.executeBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+
+        conn.commit();
+        conn.setAutoCommit(true);
+    }
+}
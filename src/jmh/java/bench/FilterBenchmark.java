@@ -0,0 +1,105 @@
+package bench;
+
+import bll.CategoryMatch;
+import bll.MovieService;
+import dal.ConnectionManager;
+import model.Category;
+import model.Movie;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// In-memory queries of MovieService on a loaded catalog.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+// the 1M catalog is above the default in-memory limit, which would leave it in the database
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-Dpmc.search.memoryLimit=2000000"})
+public class FilterBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private ConnectionManager cm;
+    private MovieService service;
+    private List<Movie> movies;
+    private List<Category> twoCategories;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        cm = BenchmarkCatalog.create(size);
+        service = new MovieService(cm);
+        service.loadMovies();
+        movies = service.getMovies();
+
+        List<Category> categories = service.getCategories();
+        twoCategories = List.of(categories.get(0), categories.get(7));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.shutdown();
+        cm.shutdown();
+    }
+
+    @Benchmark
+    public List<Movie> filterMovies() {
+        return service.filterMovies("night", 6.0, twoCategories, CategoryMatch.ANY);
+    }
+
+    @Benchmark
+    public List<Movie> filterMoviesNoIndexHit() {
+        // short text: the trigram index cannot help, the rating range has to
+        return service.filterMovies("st", 9.5, null, twoCategories, CategoryMatch.ALL);
+    }
+
+    @Benchmark
+    public List<Movie> filterByTitle() {
+        return service.filterByTitle("shadow");
+    }
+
+    @Benchmark
+    public List<Movie> fuzzySearch() {
+        // two typos, should still rank "shadow" titles first; the target is under 20 ms at 100k
+        return service.fuzzySearch("shaodw nigth", 20);
+    }
+
+    @Benchmark
+    public List<Movie> filterByCategoriesAny() {
+        return service.filterByCategories(twoCategories, CategoryMatch.ANY);
+    }
+
+    @Benchmark
+    public List<Movie> filterByCategoriesAll() {
+        return service.filterByCategories(twoCategories, CategoryMatch.ALL);
+    }
+
+    @Benchmark
+    public void getWarningTypeAll(Blackhole bh) {
+        for (Movie movie : movies) {
+            bh.consume(service.getWarningType(movie));
+        }
+    }
+
+    @Benchmark
+    public List<Movie> getMoviesToWarn() {
+        return service.getMoviesToWarn();
+    }
+}
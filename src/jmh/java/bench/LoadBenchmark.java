@@ -0,0 +1,66 @@
+package bench;
+
+import bll.MovieService;
+import dal.ConnectionManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+// Full MovieService.loadMovies() against the embedded database: query, row mapping,
+// category links and index rebuild. Change tracking does not exist in H2, so no version is read.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+// the 1M catalog is above the default in-memory limit, which would leave it in the database
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-Dpmc.search.memoryLimit=2000000"})
+public class LoadBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private ConnectionManager cm;
+    private MovieService service;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        cm = BenchmarkCatalog.create(size);
+        cm.warmUp();
+    }
+
+    @Setup(Level.Iteration)
+    public void newService() {
+        service = new MovieService(cm);
+        service.loadCategories();
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeService() {
+        service.shutdown();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        cm.shutdown();
+    }
+
+    @Benchmark
+    public MovieService loadMovies() {
+        service.loadMovies();
+        return service;
+    }
+}
@@ -0,0 +1,74 @@
+package dal;
+
+import bench.BenchmarkCatalog;
+import model.Movie;
+import org.h2.tools.SimpleResultSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// MovieDAO.mapMovie on its own, over an in-memory result set so the driver does not dominate.
+// Lives in dal because mapMovie is package-private.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class MovieMappingBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    private final MovieDAO movieDAO = new MovieDAO(null);
+    private SimpleResultSet rs;
+
+    @Setup
+    public void setUp() {
+        rs = new SimpleResultSet();
+        rs.setAutoClose(false);
+        rs.addColumn("id", Types.INTEGER, 10, 0);
+        rs.addColumn("title", Types.NVARCHAR, 255, 0);
+        rs.addColumn("imdbRating", Types.DECIMAL, 3, 1);
+        rs.addColumn("personalRating", Types.DECIMAL, 3, 1);
+        rs.addColumn("filePath", Types.NVARCHAR, 500, 0);
+        rs.addColumn("lastViewed", Types.DATE, 0, 0);
+
+        Random random = new Random(BenchmarkCatalog.SEED);
+        LocalDate today = LocalDate.of(2024, 5, 1);
+        for (int i = 1; i <= ROWS; i++) {
+            rs.addRow(i,
+                    BenchmarkCatalog.randomTitle(random),
+                    BigDecimal.valueOf(random.nextInt(101), 1),
+                    random.nextInt(3) == 0 ? BigDecimal.valueOf(random.nextInt(101), 1) : null,
+                    "movies/movie" + i + ".mp4",
+                    random.nextInt(4) == 0 ? null : Date.valueOf(today.minusDays(random.nextInt(3650))));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void mapMovie(Blackhole bh) throws SQLException {
+        rs.beforeFirst();
+        while (rs.next()) {
+            Movie movie = movieDAO.mapMovie(rs);
+            bh.consume(movie);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package bll;
+
+import dal.MovieDAO;
+import model.Category;
+import model.FileStatus;
+import model.Movie;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Imports every video file below a folder. The tree is walked once, files already in the catalog are skipped,
+// and the rest go to the database in chunks of one multi-row INSERT each, a few chunks at a time.
+// A failed chunk is rolled back on its own; the chunks before and after it are still imported.
+public class BulkImporter {
+
+    public interface ProgressListener {
+        // called from a background thread after every chunk
+        void onProgress(int processed, int total);
+    }
+
+    // found: video files below the folder, skipped: already in the catalog, failed: in chunks that were rolled back
+    public record Result(int found, int skipped, int imported, int failed, Exception firstError) {
+    }
+
+    // chunks written at the same time; stays well below the connection pool size so the app keeps working
+    private static final int PARALLEL_CHUNKS = 4;
+
+    private final MovieDAO movieDAO;
+    private final MovieService movieService;
+
+    BulkImporter(MovieDAO movieDAO, MovieService movieService) {
+        this.movieDAO = movieDAO;
+        this.movieService = movieService;
+    }
+
+    public Result importFolder(Path root, List<Category> categories, ProgressListener progressListener)
+            throws IOException, SQLException, InterruptedException {
+
+        List<Path> files = findVideos(root);
+
+        // on Windows "C:\Movies\Heat.mp4" and "c:\movies\HEAT.MP4" are one file and must not be imported twice
+        boolean ignoreCase = ignoresCase(files);
+        Set<String> known = new HashSet<>();
+        for (String filePath : movieDAO.getFilePaths()) {
+            Path path = normalize(filePath);
+            if (path != null) {
+                known.add(key(path, ignoreCase));
+            }
+        }
+
+        List<MovieDAO.NewMovie> newMovies = new ArrayList<>();
+        for (Path file : files) {
+            if (known.add(key(file, ignoreCase))) {
+                newMovies.add(new MovieDAO.NewMovie(FileAvailabilityScanner.titleOf(file), 0.0, file.toString()));
+            }
+        }
+        int skipped = files.size() - newMovies.size();
+
+        List<Integer> categoryIds = new ArrayList<>();
+        for (Category category : categories) {
+            categoryIds.add(category.getId());
+        }
+
+        int total = newMovies.size();
+        AtomicInteger processed = new AtomicInteger();
+        AtomicInteger imported = new AtomicInteger();
+        AtomicReference<Exception> firstError = new AtomicReference<>();
+        Semaphore permits = new Semaphore(PARALLEL_CHUNKS);
+
+        // closing the executor waits for every chunk
+        try (ExecutorService chunks = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int from = 0; from < total; from += MovieDAO.MAX_BATCH_ROWS) {
+                List<MovieDAO.NewMovie> chunk = newMovies.subList(from, Math.min(total, from + MovieDAO.MAX_BATCH_ROWS));
+                permits.acquire();
+                chunks.execute(() -> {
+                    try {
+                        List<Movie> created = movieDAO.createBatch(chunk, categoryIds);
+                        for (Movie movie : created) {
+                            movie.setFileStatus(FileStatus.AVAILABLE);   // just seen on disk
+                            for (Category category : categories) {
+                                movie.addCategory(category);
+                            }
+                        }
+                        movieService.addImportedMovies(created);
+                        imported.addAndGet(created.size());
+                    } catch (SQLException | RuntimeException e) {
+                        firstError.compareAndSet(null, e);
+                    } finally {
+                        permits.release();
+                    }
+                    if (progressListener != null) {
+                        progressListener.onProgress(processed.addAndGet(chunk.size()), total);
+                    }
+                });
+            }
+        }
+
+        return new Result(files.size(), skipped, imported.get(), total - imported.get(), firstError.get());
+    }
+
+    // Video files below root, sorted by path. Folders that cannot be read are left out instead of ending the walk.
+    private static List<Path> findVideos(Path root) throws IOException {
+        List<Path> files = new ArrayList<>();
+        Files.walkFileTree(root.toAbsolutePath().normalize(), new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile() && VideoFiles.isVideo(file)) {
+                    files.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        files.sort(null);
+        return files;
+    }
+
+    // Whether the file system holding these files treats names differing only in case as one file, as Windows
+    // and most macOS drives do. Asked with one of the files instead of guessed from the operating system.
+    private static boolean ignoresCase(List<Path> files) {
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            String upper = name.toUpperCase(Locale.ROOT);
+            String other = upper.equals(name) ? name.toLowerCase(Locale.ROOT) : upper;
+            if (other.equals(name)) continue;   // no letters to swap
+            Path sibling = file.resolveSibling(other);
+            try {
+                return Files.exists(sibling) && Files.isSameFile(file, sibling);
+            } catch (IOException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static String key(Path path, boolean ignoreCase) {
+        return ignoreCase ? path.toString().toLowerCase(Locale.ROOT) : path.toString();
+    }
+
+    // Stored paths in the same absolute, normalized form the walk produces; null for ones that cannot be parsed.
+    private static Path normalize(String filePath) {
+        if (filePath == null || filePath.isBlank()) return null;
+        try {
+            return Path.of(filePath).toAbsolutePath().normalize();
+        } catch (InvalidPathException e) {
+            return null;   // cannot be a file the walk finds
+        }
+    }
+}
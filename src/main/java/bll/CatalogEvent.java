@@ -0,0 +1,59 @@
+package bll;
+
+import model.Category;
+import model.Movie;
+
+import java.util.List;
+
+// A single change to the in-memory catalog, so views can update themselves without a full reload.
+// movies is only set for MOVIES_ADDED.
+public record CatalogEvent(Type type, Movie movie, Category category, List<Movie> movies) {
+
+    public enum Type {
+        MOVIE_ADDED,
+        MOVIES_ADDED,       // many at once, e.g. a chunk of a folder import
+        MOVIE_REMOVED,
+        MOVIE_UPDATED,      // rating, last view or categories of the movie changed
+        CATEGORY_ADDED,
+        CATEGORY_REMOVED,
+        CATEGORY_UPDATED,   // renamed
+        FILES_CHECKED,      // the file status of any number of movies changed
+        RELOADED,           // everything may have changed
+    }
+
+    public static CatalogEvent movieAdded(Movie movie) {
+        return new CatalogEvent(Type.MOVIE_ADDED, movie, null, null);
+    }
+
+    public static CatalogEvent moviesAdded(List<Movie> movies) {
+        return new CatalogEvent(Type.MOVIES_ADDED, null, null, List.copyOf(movies));
+    }
+
+    public static CatalogEvent movieRemoved(Movie movie) {
+        return new CatalogEvent(Type.MOVIE_REMOVED, movie, null, null);
+    }
+
+    public static CatalogEvent movieUpdated(Movie movie) {
+        return new CatalogEvent(Type.MOVIE_UPDATED, movie, null, null);
+    }
+
+    public static CatalogEvent categoryAdded(Category category) {
+        return new CatalogEvent(Type.CATEGORY_ADDED, null, category, null);
+    }
+
+    public static CatalogEvent categoryRemoved(Category category) {
+        return new CatalogEvent(Type.CATEGORY_REMOVED, null, category, null);
+    }
+
+    public static CatalogEvent categoryUpdated(Category category) {
+        return new CatalogEvent(Type.CATEGORY_UPDATED, null, category, null);
+    }
+
+    public static CatalogEvent filesChecked() {
+        return new CatalogEvent(Type.FILES_CHECKED, null, null, null);
+    }
+
+    public static CatalogEvent reloaded() {
+        return new CatalogEvent(Type.RELOADED, null, null, null);
+    }
+}
@@ -0,0 +1,6 @@
+package bll;
+
+// Called on the thread that made the change, usually a background thread.
+public interface CatalogListener {
+    void onCatalogChanged(CatalogEvent event);
+}
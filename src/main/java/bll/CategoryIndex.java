@@ -0,0 +1,77 @@
+package bll;
+
+import model.Category;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// One bitmap of movie slots per category, so category filters become bitmap unions and intersections.
+public class CategoryIndex {
+
+    private final Map<Integer, BitSet> slotsByCategory = new HashMap<>();
+
+    public void add(int slot, Category category) {
+        slotsByCategory.computeIfAbsent(category.getId(), id -> new BitSet()).set(slot);
+    }
+
+    public void remove(int slot, Category category) {
+        BitSet slots = slotsByCategory.get(category.getId());
+        if (slots != null) {
+            slots.clear(slot);
+        }
+    }
+
+    public void removeCategory(Category category) {
+        slotsByCategory.remove(category.getId());
+    }
+
+    public void clear() {
+        slotsByCategory.clear();
+    }
+
+    // Live view; callers must not modify it.
+    public BitSet slotsOf(Category category) {
+        BitSet slots = slotsByCategory.get(category.getId());
+        return slots != null ? slots : new BitSet();
+    }
+
+    public int count(Category category) {
+        BitSet slots = slotsByCategory.get(category.getId());
+        return slots != null ? slots.cardinality() : 0;
+    }
+
+    // Movies in at least one of the categories.
+    public BitSet anyOf(List<Category> categories) {
+        BitSet result = new BitSet();
+        for (Category category : categories) {
+            BitSet slots = slotsByCategory.get(category.getId());
+            if (slots != null) {
+                result.or(slots);
+            }
+        }
+        return result;
+    }
+
+    // Movies in every one of the categories.
+    public BitSet allOf(List<Category> categories) {
+        BitSet result = null;
+        for (Category category : categories) {
+            BitSet slots = slotsByCategory.get(category.getId());
+            if (slots == null) {
+                return new BitSet();
+            }
+            if (result == null) {
+                result = (BitSet) slots.clone();
+            } else {
+                result.and(slots);
+            }
+        }
+        return result != null ? result : new BitSet();
+    }
+
+    public BitSet match(List<Category> categories, CategoryMatch mode) {
+        return mode == CategoryMatch.ALL ? allOf(categories) : anyOf(categories);
+    }
+}
@@ -0,0 +1,6 @@
+package bll;
+
+public enum CategoryMatch {
+    ANY,   // movie is in at least one of the selected categories
+    ALL,   // movie is in every selected category
+}
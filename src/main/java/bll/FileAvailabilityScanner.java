@@ -0,0 +1,343 @@
+package bll;
+
+import model.FileStatus;
+import model.Movie;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+// Keeps the FileStatus of every movie current without ever touching the disk on the FX thread.
+// A scan lists each movie folder once instead of asking for every file, with a few folders read in parallel
+// so a slow network share does not hold up the rest. Afterwards a WatchService on those folders reports
+// deleted files, files that came back, and new video files, which are offered for import. Library roots are
+// watched with every folder below them, so new files are seen in folders that hold no movie yet.
+public class FileAvailabilityScanner implements CatalogListener {
+
+    public interface NewFileListener {
+        // a video file appeared in a watched folder and no movie points to it
+        void onNewFile(Path file);
+    }
+
+    // folders read at the same time; more only adds contention on a network share
+    private static final int PARALLEL_FOLDERS = 8;
+    // below this many movies in a folder, asking for each file is cheaper than listing the folder
+    private static final int LIST_FOLDER_FROM = 4;
+
+    private final MovieService movieService;
+    private final NewFileListener newFileListener;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore folderPermits = new Semaphore(PARALLEL_FOLDERS);
+
+    private final Map<Path, WatchKey> watchedFolders = new ConcurrentHashMap<>();
+    // folders watched as part of a library root; folders created in them are watched too
+    private final Set<Path> treeFolders = ConcurrentHashMap.newKeySet();
+    private volatile WatchService watchService;
+    private Thread watchThread;
+
+    public FileAvailabilityScanner(MovieService movieService, NewFileListener newFileListener) {
+        this.movieService = movieService;
+        this.newFileListener = newFileListener;
+    }
+
+    // Scans the whole catalog in the background, then keeps watching. Call once.
+    public void start() throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        watchThread = new Thread(this::watchLoop, "library-watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+
+        movieService.addListener(this);
+        scanLater(movieService::getMovies);
+        for (Path root : configuredRoots()) {
+            watchTree(root);
+        }
+    }
+
+    // Watches root and every folder below it, in the background. For library roots and imported folders.
+    public void watchTree(Path root) {
+        watchTreeLater(root, false);
+    }
+
+    // -Dpmc.libraryRoots=<folder>[;<folder>...], separated by ':' outside Windows
+    private static List<Path> configuredRoots() {
+        List<Path> roots = new ArrayList<>();
+        for (String part : System.getProperty("pmc.libraryRoots", "").split(Pattern.quote(File.pathSeparator))) {
+            Path root = toPath(part.trim());
+            if (root != null) {
+                roots.add(root);
+            }
+        }
+        return roots;
+    }
+
+    public void stop() {
+        movieService.removeListener(this);
+        executor.shutdownNow();
+        WatchService service = watchService;
+        if (service != null) {
+            try {
+                service.close();   // wakes the watch thread with ClosedWatchServiceException
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    @Override
+    public void onCatalogChanged(CatalogEvent event) {
+        switch (event.type()) {
+            // new movies, and movies whose file path changed, come in UNKNOWN; rating and view changes do not
+            case MOVIE_ADDED, MOVIE_UPDATED -> {
+                if (event.movie().getFileStatus() == FileStatus.UNKNOWN) scanLater(() -> List.of(event.movie()));
+            }
+            // imported movies were just found on disk and come in AVAILABLE
+            case MOVIES_ADDED -> {
+                List<Movie> unchecked = new ArrayList<>();
+                for (Movie movie : event.movies()) {
+                    if (movie.getFileStatus() != FileStatus.AVAILABLE) unchecked.add(movie);
+                }
+                if (!unchecked.isEmpty()) scanLater(() -> unchecked);
+            }
+            case RELOADED -> scanLater(movieService::getMovies);
+            default -> { }
+        }
+    }
+
+    private void scanLater(Supplier<List<Movie>> movies) {
+        try {
+            executor.execute(() -> scan(movies.get()));
+        } catch (RejectedExecutionException e) {
+            // stopped
+        }
+    }
+
+    // Checks the given movies folder by folder and hands the results to the service in one batch.
+    void scan(List<Movie> movies) {
+        Map<Path, List<Movie>> byFolder = new HashMap<>();
+        Map<Movie, FileStatus> statuses = new ConcurrentHashMap<>();
+        for (Movie movie : movies) {
+            Path file = toPath(movie.getFilePath());
+            if (file == null || file.getParent() == null) {
+                statuses.put(movie, FileStatus.MISSING);
+            } else {
+                byFolder.computeIfAbsent(file.getParent(), k -> new ArrayList<>()).add(movie);
+            }
+        }
+
+        List<Future<?>> workers = new ArrayList<>();
+        for (Map.Entry<Path, List<Movie>> entry : byFolder.entrySet()) {
+            workers.add(executor.submit(() -> {
+                folderPermits.acquire();
+                try {
+                    checkFolder(entry.getKey(), entry.getValue(), statuses);
+                } finally {
+                    folderPermits.release();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> worker : workers) {
+            try {
+                worker.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                return;   // only when stopping
+            }
+        }
+
+        movieService.applyFileStatuses(statuses);
+    }
+
+    private void checkFolder(Path folder, List<Movie> movies, Map<Movie, FileStatus> statuses) {
+        if (movies.size() < LIST_FOLDER_FROM) {
+            // single added or changed movies, e.g. one per movie of a bulk import into a large folder
+            for (Movie movie : movies) {
+                statuses.put(movie, Files.exists(toPath(movie.getFilePath())) ? FileStatus.AVAILABLE : FileStatus.MISSING);
+            }
+            watch(folder);
+            return;
+        }
+
+        Set<String> names = listNames(folder);
+        if (names == null) {
+            for (Movie movie : movies) {
+                statuses.put(movie, FileStatus.MISSING);
+            }
+            return;
+        }
+
+        for (Movie movie : movies) {
+            Path file = toPath(movie.getFilePath());
+            String name = file.getFileName().toString();
+            // a miss may only be a different case on a case-insensitive drive, ask the file system to be sure
+            boolean found = names.contains(name) || Files.exists(file);
+            statuses.put(movie, found ? FileStatus.AVAILABLE : FileStatus.MISSING);
+        }
+        watch(folder);
+    }
+
+    // File names in the folder, or null if the folder cannot be read.
+    private static Set<String> listNames(Path folder) {
+        Set<String> names = new HashSet<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(folder)) {
+            for (Path entry : entries) {
+                names.add(entry.getFileName().toString());
+            }
+            return names;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void watch(Path folder) {
+        WatchService service = watchService;
+        if (service == null || watchedFolders.containsKey(folder)) return;
+        try {
+            watchedFolders.put(folder, folder.register(service,
+                    StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE));
+        } catch (IOException | ClosedWatchServiceException e) {
+            // some network shares cannot be watched; the next full scan still covers them
+        }
+    }
+
+    private void watchTreeLater(Path root, boolean reportVideos) {
+        try {
+            executor.execute(() -> registerTree(root, reportVideos));
+        } catch (RejectedExecutionException e) {
+            // stopped
+        }
+    }
+
+    // With reportVideos the videos already inside are offered as well: a new folder may have been filled
+    // before it was watched. Each folder is watched before it is listed, so no file falls in between.
+    private void registerTree(Path root, boolean reportVideos) {
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    treeFolders.add(dir);
+                    watch(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (reportVideos && attrs.isRegularFile()) {
+                        reportIfNew(file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            // the root itself cannot be read; the next start tries again
+        }
+    }
+
+    private void watchLoop() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Path folder = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        scanLater(() -> moviesIn(folder));
+                    } else {
+                        onFolderEvent(folder, folder.resolve((Path) event.context()), event.kind());
+                    }
+                }
+                if (!key.reset()) {
+                    watchedFolders.remove(folder);   // the folder itself is gone
+                    treeFolders.remove(folder);
+                    scanLater(() -> moviesIn(folder));
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // stopped
+        }
+    }
+
+    private void onFolderEvent(Path folder, Path file, WatchEvent.Kind<?> kind) {
+        if (kind == StandardWatchEventKinds.ENTRY_CREATE && treeFolders.contains(folder) && Files.isDirectory(file)) {
+            watchTreeLater(file, true);
+            return;
+        }
+
+        Movie movie = movieService.findByFilePath(file);
+        if (movie != null) {
+            FileStatus status = (kind == StandardWatchEventKinds.ENTRY_DELETE) ? FileStatus.MISSING : FileStatus.AVAILABLE;
+            movieService.applyFileStatuses(Map.of(movie, status));
+        } else if (kind == StandardWatchEventKinds.ENTRY_CREATE) {
+            reportIfNew(file);
+        }
+    }
+
+    private void reportIfNew(Path file) {
+        if (newFileListener != null && VideoFiles.isVideo(file) && movieService.findByFilePath(file) == null) {
+            newFileListener.onNewFile(file);
+        }
+    }
+
+    private List<Movie> moviesIn(Path folder) {
+        List<Movie> result = new ArrayList<>();
+        for (Movie movie : movieService.getMovies()) {
+            Path file = toPath(movie.getFilePath());
+            if (file != null && folder.equals(file.getParent())) {
+                result.add(movie);
+            }
+        }
+        return result;
+    }
+
+    // Title for a new movie: the file name without its extension, dots and underscores read as spaces.
+    public static String titleOf(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        if (dot > 0) {
+            name = name.substring(0, dot);
+        }
+        return name.replace('.', ' ').replace('_', ' ').trim();
+    }
+
+    private static Path toPath(String filePath) {
+        if (filePath == null || filePath.isBlank()) return null;
+        try {
+            return Path.of(filePath);
+        } catch (InvalidPathException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package bll;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+// Typo tolerant, ranked title search, keyed by the same slots as the other indexes.
+// Titles and queries are folded first: accents removed, lowercase, file extensions and release tags dropped.
+// Every title sharing a trigram with the query gets a Dice based similarity; the best candidates are then ranked
+// by their Damerau-Levenshtein distance to the closest run of title words, bounded so a bad match stops early.
+public class FuzzyTitleSearch {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern EXTENSION = Pattern.compile("\\.(" + String.join("|", VideoFiles.EXTENSIONS) + ")$");
+    private static final Pattern BRACKETS = Pattern.compile("[\\[(][^\\])]*[\\])]");
+    private static final Pattern RELEASE_TAGS = Pattern.compile(
+            "\\b(2160p|1080p|720p|480p|4k|uhd|hdr|x26[45]|h26[45]|hevc|xvid|bluray|blu ray|brrip|bdrip|"
+            + "webrip|web dl|webdl|dvdrip|hdrip|hdtv|remux|aac|ac3|dts|proper|repack|extended|unrated|yify)\\b");
+    private static final Pattern SEPARATORS = Pattern.compile("[._\\-\\s]+");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N} ]");
+
+    // candidates that go on to the edit distance check, per requested result
+    private static final int CANDIDATES_PER_RESULT = 8;
+    private static final double MIN_SIMILARITY = 0.3;
+
+    private final Map<Integer, SlotList> postings = new HashMap<>();
+    private final List<String> foldedTitles = new ArrayList<>();
+    private int[] gramCounts = new int[16];
+
+    // scratch space for search(); callers hold MovieService's lock
+    private int[] shared = new int[16];
+    private int[] touched = new int[16];
+
+    public record Match(int slot, double score) {
+    }
+
+    // The form titles and queries are compared in.
+    public static String fold(String text) {
+        String s = Normalizer.normalize(text, Normalizer.Form.NFD);
+        s = MARKS.matcher(s).replaceAll("").toLowerCase(Locale.ROOT);
+        s = EXTENSION.matcher(s).replaceAll("");
+        s = BRACKETS.matcher(s).replaceAll(" ");
+        s = SEPARATORS.matcher(s).replaceAll(" ");
+        s = RELEASE_TAGS.matcher(s).replaceAll(" ");
+        s = NON_WORD.matcher(s).replaceAll("");
+        return SEPARATORS.matcher(s).replaceAll(" ").trim();
+    }
+
+    public void add(int slot, String title) {
+        String folded = fold(title);
+        while (foldedTitles.size() <= slot) {
+            foldedTitles.add(null);
+        }
+        foldedTitles.set(slot, folded);
+        if (slot >= gramCounts.length) {
+            gramCounts = Arrays.copyOf(gramCounts, Math.max(slot + 1, gramCounts.length * 2));
+        }
+
+        int[] grams = trigrams(folded);
+        gramCounts[slot] = grams.length;
+        for (int gram : grams) {
+            postings.computeIfAbsent(gram, k -> new SlotList()).add(slot);
+        }
+    }
+
+    public void remove(int slot) {
+        if (slot >= foldedTitles.size()) return;
+        String folded = foldedTitles.get(slot);
+        if (folded == null) return;
+        foldedTitles.set(slot, null);
+
+        for (int gram : trigrams(folded)) {
+            SlotList list = postings.get(gram);
+            if (list != null && list.remove(slot) && list.size == 0) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    public void clear() {
+        postings.clear();
+        foldedTitles.clear();
+    }
+
+    // Up to limit slots, best match first.
+    public List<Match> search(String text, int limit) {
+        String query = fold(text);
+        if (query.isEmpty() || limit <= 0) return List.of();
+
+        int[] queryGrams = trigrams(query);
+        if (shared.length < foldedTitles.size()) {
+            shared = new int[Math.max(foldedTitles.size(), shared.length * 2)];
+            touched = new int[shared.length];
+        }
+
+        // count shared trigrams per title, remembering which slots were touched so the scratch array can be reset
+        int touchedCount = 0;
+        for (int gram : queryGrams) {
+            SlotList list = postings.get(gram);
+            if (list == null) continue;
+            for (int i = 0; i < list.size; i++) {
+                int slot = list.slots[i];
+                if (shared[slot]++ == 0) {
+                    touched[touchedCount++] = slot;
+                }
+            }
+        }
+
+        // keep the best candidates by Dice coefficient, averaged with how much of the query the title covers
+        // so a short query inside a long title is not lost
+        int keep = Math.max(limit * CANDIDATES_PER_RESULT, 50);
+        List<Match> candidates = new ArrayList<>();
+        for (int i = 0; i < touchedCount; i++) {
+            int slot = touched[i];
+            double dice = 2.0 * shared[slot] / (queryGrams.length + gramCounts[slot]);
+            double coverage = (double) shared[slot] / queryGrams.length;
+            shared[slot] = 0;
+            double similarity = (dice + coverage) / 2;
+            if (similarity >= MIN_SIMILARITY) {
+                candidates.add(new Match(slot, similarity));
+            }
+        }
+        candidates.sort((a, b) -> Double.compare(b.score(), a.score()));
+        if (candidates.size() > keep) {
+            candidates = candidates.subList(0, keep);
+        }
+
+        // rerank by edit distance to the closest words of the title
+        String[] queryWords = query.split(" ");
+        int maxDistance = Math.max(1, query.length() / 4);
+        List<Match> ranked = new ArrayList<>(candidates.size());
+        for (Match candidate : candidates) {
+            String title = foldedTitles.get(candidate.slot());
+            double score;
+            if (title.contains(query)) {
+                score = 2.0 + (double) query.length() / title.length();   // exact hits first, tighter ones on top
+            } else {
+                int distance = closestWordsDistance(queryWords, query, title.split(" "), maxDistance);
+                score = (distance <= maxDistance)
+                        ? 1.0 + (1.0 - (double) distance / (maxDistance + 1)) * 0.6 + candidate.score() * 0.4
+                        : candidate.score();
+            }
+            ranked.add(new Match(candidate.slot(), score));
+        }
+        ranked.sort((a, b) -> Double.compare(b.score(), a.score()));
+        return ranked.size() > limit ? new ArrayList<>(ranked.subList(0, limit)) : ranked;
+    }
+
+    // Smallest distance between the query and any run of as many consecutive title words.
+    private static int closestWordsDistance(String[] queryWords, String query, String[] titleWords, int maxDistance) {
+        int window = Math.min(queryWords.length, titleWords.length);
+        int best = Integer.MAX_VALUE;
+        for (int start = 0; start + window <= titleWords.length; start++) {
+            String run = (window == 1) ? titleWords[start] : String.join(" ", Arrays.copyOfRange(titleWords, start, start + window));
+            best = Math.min(best, distance(query, run, Math.min(maxDistance, best)));
+            if (best == 0) break;
+        }
+        return best;
+    }
+
+    // Damerau-Levenshtein distance (optimal string alignment); anything above max is reported as max + 1.
+    static int distance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) return max + 1;
+
+        int[] prevPrev = new int[b.length() + 1];
+        int[] prev = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            prev[j] = j;
+        }
+
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = (a.charAt(i - 1) == b.charAt(j - 1)) ? 0 : 1;
+                int d = Math.min(Math.min(prev[j] + 1, current[j - 1] + 1), prev[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    d = Math.min(d, prevPrev[j - 2] + 1);
+                }
+                current[j] = d;
+                rowMin = Math.min(rowMin, d);
+            }
+            if (rowMin > max) return max + 1;
+
+            int[] recycled = prevPrev;
+            prevPrev = prev;
+            prev = current;
+            current = recycled;
+        }
+        return Math.min(prev[b.length()], max + 1);
+    }
+
+    // Distinct trigrams of the word-padded text, so short words and word starts count too.
+    private static int[] trigrams(String folded) {
+        String padded = "  " + folded + " ";
+        int[] grams = new int[Math.max(0, padded.length() - 2)];
+        int n = 0;
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            int gram = hash(padded, i);
+            boolean seen = false;
+            for (int k = 0; k < n; k++) {
+                if (grams[k] == gram) {
+                    seen = true;
+                    break;
+                }
+            }
+            if (!seen) grams[n++] = gram;
+        }
+        return Arrays.copyOf(grams, n);
+    }
+
+    // Folded titles are mostly ASCII; other characters may collide, which only costs a little precision.
+    private static int hash(String s, int i) {
+        return (s.charAt(i) & 0x3FF) << 20 | (s.charAt(i + 1) & 0x3FF) << 10 | (s.charAt(i + 2) & 0x3FF);
+    }
+}
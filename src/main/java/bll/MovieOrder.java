@@ -0,0 +1,6 @@
+package bll;
+
+public enum MovieOrder {
+    NEWEST_FIRST,   // the order of getMovies()
+    TITLE
+}
@@ -0,0 +1,34 @@
+package bll;
+
+import model.Category;
+
+import java.util.List;
+
+// The filters of one search; null or empty values mean "no filter".
+public record MovieQuery(String title,
+                         Double minImdb,
+                         Double maxImdb,
+                         List<Category> categories,
+                         CategoryMatch categoryMatch) {
+
+    public MovieQuery {
+        categories = (categories == null) ? List.of() : List.copyOf(categories);
+        categoryMatch = (categoryMatch == null) ? CategoryMatch.ANY : categoryMatch;
+    }
+
+    public boolean hasTitle() {
+        return title != null && !title.isEmpty();
+    }
+
+    public boolean hasImdbRange() {
+        return minImdb != null || maxImdb != null;
+    }
+
+    public boolean hasCategories() {
+        return !categories.isEmpty();
+    }
+
+    public boolean isEmpty() {
+        return !hasTitle() && !hasImdbRange() && !hasCategories();
+    }
+}
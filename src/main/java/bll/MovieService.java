@@ -1,295 +1,1362 @@
 package bll;
 
+import dal.CatalogSnapshot;
+import dal.ChangeTrackingDAO;
+import dal.ConnectionManager;
+import dal.Delta;
 import dal.MovieDAO;
+import dal.MovieSearch;
 import model.Category;
+import model.CategoryRegistry;
+import model.FileStatus;
 import model.Movie;
+import model.MovieStore;
 import dal.CategoryDAO;
 import dal.CatMovieDAO;
-
+import metrics.Metrics;
+import metrics.Timer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
 import model.WarningType;
 import java.time.LocalDate;
 
 public class MovieService {
 
+    private static final Timer FILTER_MOVIES = Metrics.timer("MovieService.filterMovies");
+    private static final Timer FILTER_BY_TITLE = Metrics.timer("MovieService.filterByTitle");
+    private static final Timer FILTER_BY_CATEGORIES = Metrics.timer("MovieService.filterByCategories");
+    private static final Timer LOAD_MOVIES = Metrics.timer("MovieService.loadMovies");
+    private static final Timer SYNC = Metrics.timer("MovieService.syncNow");
+    private static final Timer SEARCH = Metrics.timer("MovieService.search");
+    private static final Timer FUZZY_SEARCH = Metrics.timer("MovieService.fuzzySearch");
+    private static final Timer SNAPSHOT_LOAD = Metrics.timer("MovieService.loadSnapshot");
+    private static final Timer SNAPSHOT_SAVE = Metrics.timer("MovieService.saveSnapshot");
+
+    // The *Async methods run on virtual threads so the JavaFX thread never waits for JDBC.
+    // Database calls happen outside the lock, in-memory state and indexes are only touched while holding it.
+    private final Object lock = new Object();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Catalogs with more movies than this are not loaded; search() then runs in the database (-Dpmc.search.memoryLimit).
+    private static final int IN_MEMORY_LIMIT = Integer.getInteger("pmc.search.memoryLimit", 250_000);
+    // rows filterMoviesAsync returns when it has to ask the database; the GUI pages through searchAsync instead
+    private static final int DATABASE_FILTER_LIMIT = 1000;
+    private static final Comparator<Movie> TITLE_ORDER =
+            Comparator.comparing(Movie::getTitle, String.CASE_INSENSITIVE_ORDER).thenComparingInt(Movie::getId);
+    private static final Comparator<Movie> NEWEST_ORDER = Comparator.comparingInt(Movie::getId).reversed();
+
     private final List<Movie> movies = new ArrayList<>();
+    private volatile boolean catalogInMemory;
+    // The values of every loaded movie live here column by column; the Movie objects are views of its rows.
+    // A reload starts a new store, movies still shown from the old one keep reading it.
+    private MovieStore store = new MovieStore();
+
+    // Every movie gets a slot (its position at load/insert time) and the search indexes refer to movies by slot.
+    // A deleted movie leaves an empty slot until the indexes are rebuilt.
+    private final List<Movie> slots = new ArrayList<>();
+    private final Map<Integer, Integer> slotById = new HashMap<>();
+    // for the folder watcher; Path equality follows the file system, e.g. ignores case on Windows
+    private final Map<Path, Integer> slotByPath = new HashMap<>();
+    private int freeSlots;
+    private final TitleIndex titleIndex = new TitleIndex();
+    private final FuzzyTitleSearch fuzzyTitles = new FuzzyTitleSearch();
+    private final CategoryIndex categoryIndex = new CategoryIndex();
+    private final RatingIndex imdbIndex = new RatingIndex();
+    private final RatingIndex personalIndex = new RatingIndex();   // rated movies only
+    private final WarningIndex warningIndex = new WarningIndex(LocalDate.now());
+    private final QueryPlanner queryPlanner = new QueryPlanner(titleIndex, categoryIndex, imdbIndex, slots);
     private final List<Category> categories = new ArrayList<>();
-    private final CategoryDAO categoryDAO = new CategoryDAO();
-    private final MovieDAO movieDAO = new MovieDAO();
+    // one Category object per id for the DAOs and the whole catalog
+    private final CategoryRegistry categoryRegistry = new CategoryRegistry();
+    private final CategoryDAO categoryDAO;
+    private final MovieDAO movieDAO;
 
 
 
-    private final CatMovieDAO catMovieDAO = new CatMovieDAO();
+    private final CatMovieDAO catMovieDAO;
+    private final ChangeTrackingDAO changeTrackingDAO;
 
-    public void addCategoryToMovie(Movie movie, Category category) {
+    // change tracking version the in-memory catalog is up to date with; -1 when change tracking is not available
+    private volatile long syncVersion = -1;
+    private ScheduledExecutorService syncScheduler;
 
-        movie.addCategory(category);
+    // moves the warning cutoff forward when the date changes; checked every minute so sleep and DST do not matter
+    private final ScheduledExecutorService clockScheduler;
+    private boolean started;
 
+    // ratings and view dates are written in batches in the background, see WriteBehindQueue
+    private final List<WriteBehindQueue.FailureListener> writeFailureListeners = new CopyOnWriteArrayList<>();
+    private final WriteBehindQueue writeQueue;
 
-        try {
-            catMovieDAO.addCategoryToMovie(movie.getId(), category.getId());
-        } catch (SQLException ignored) {}
+    // Local copy of the catalog for a fast start, see CatalogSnapshot. null disables it.
+    private final Path snapshotPath;
+    private final AtomicLong changeCount = new AtomicLong();
+    private volatile long savedChangeCount;
+    private volatile boolean restoredFromSnapshot;
+    // some ratings or view dates in memory never reached the database; a snapshot would keep them
+    // on the next start, and delta sync would not correct them because those rows did not change
+    private volatile boolean writesLost;
 
+    public MovieService() {
+        this(ConnectionManager.getInstance(), defaultSnapshotPath());
     }
 
-    public void removeCategoryFromMovie(Movie movie, Category category) {
-        movie.removeCategory(category);
-        try {
-            catMovieDAO.removeCategoryFromMovie(movie.getId(), category.getId());
-        } catch (SQLException ignored) {
+    // All DAOs share the given pool; the benchmarks use this with an embedded database.
+    public MovieService(ConnectionManager cm) {
+        this(cm, null);
+    }
+
+    public MovieService(ConnectionManager cm, Path snapshotPath) {
+        this.snapshotPath = snapshotPath;
+        categoryDAO = new CategoryDAO(cm, categoryRegistry);
+        movieDAO = new MovieDAO(cm);
+        catMovieDAO = new CatMovieDAO(cm);
+        changeTrackingDAO = new ChangeTrackingDAO(cm);
+
+        writeQueue = new WriteBehindQueue(movieDAO, Duration.ofSeconds(2), 200, 5,
+                (movieIds, error) -> {
+                    writesLost = true;
+                    for (WriteBehindQueue.FailureListener listener : writeFailureListeners) {
+                        listener.onWriteFailed(movieIds, error);
+                    }
+                });
+
+        clockScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "warning-clock");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // Starts the background work: flushing queued ratings, the warning clock and the periodic snapshot save.
+    // Not done by the constructor, so those threads never see a service that is still being built.
+    public synchronized void start() {
+        if (started) return;
+        started = true;
+
+        writeQueue.start();
+        clockScheduler.scheduleAtFixedRate(() -> warningIndex.rollForward(LocalDate.now()), 1, 1, TimeUnit.MINUTES);
+        if (snapshotPath != null) {
+            clockScheduler.scheduleWithFixedDelay(this::saveSnapshotIfChanged, 5, 5, TimeUnit.MINUTES);
+        }
+    }
+
+    // -Dpmc.snapshot=<file> moves it, -Dpmc.snapshot= (empty) turns it off.
+    private static Path defaultSnapshotPath() {
+        String configured = System.getProperty("pmc.snapshot");
+        if (configured != null) {
+            return configured.isBlank() ? null : Path.of(configured);
+        }
+        return Path.of(System.getProperty("user.home"), ".privatemoviecollection", "catalog.snapshot");
+    }
+
+    // Told about rating/view updates that could not be saved, after retries.
+    public void addWriteFailureListener(WriteBehindQueue.FailureListener listener) {
+        writeFailureListeners.add(listener);
+    }
+
+    private final List<CatalogListener> listeners = new CopyOnWriteArrayList<>();
+
+    public void addListener(CatalogListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(CatalogListener listener) {
+        listeners.remove(listener);
+    }
+
+    // Always called after the lock is released, so listeners may call back into the service.
+    private void fire(CatalogEvent event) {
+        changeCount.incrementAndGet();
+        for (CatalogListener listener : listeners) {
+            listener.onCatalogChanged(event);
+        }
+    }
+
+    // The database is written first, so a failed write leaves memory (and the snapshot) as it was.
+    public void addCategoryToMovie(Movie movie, Category category) throws SQLException {
+        catMovieDAO.addCategoryToMovie(movie.getId(), category.getId());
+
+        synchronized (lock) {
+            movie.addCategory(category);
+            Integer slot = slotById.get(movie.getId());
+            if (slot != null) {
+                categoryIndex.add(slot, category);
+            }
+        }
+        fire(CatalogEvent.movieUpdated(movie));
+    }
 
+    public void removeCategoryFromMovie(Movie movie, Category category) throws SQLException {
+        catMovieDAO.removeCategoryFromMovie(movie.getId(), category.getId());
+
+        synchronized (lock) {
+            movie.removeCategory(category);
+            Integer slot = slotById.get(movie.getId());
+            if (slot != null && !movie.hasCategory(category)) {
+                categoryIndex.remove(slot, category);
+            }
         }
+        fire(CatalogEvent.movieUpdated(movie));
     }
 
 
 
     public Movie addMovie(String title, double imdbRating, String fileLink) throws SQLException {
+        return addMovie(title, imdbRating, fileLink, List.of());
+    }
+
+    // Creates the movie and all its category links in one transaction.
+    public Movie addMovie(String title, double imdbRating, String fileLink, List<Category> movieCategories) throws SQLException {
+
+        List<Integer> categoryIds = new ArrayList<>();
+        for (Category category : movieCategories) {
+            categoryIds.add(category.getId());
+        }
 
         double notRated = -1.0;
-        int dbId = movieDAO.create(title, imdbRating, notRated, fileLink);
+        int dbId = movieDAO.create(title, imdbRating, notRated, fileLink, categoryIds);
 
         Movie movie = new Movie(dbId, title, imdbRating, fileLink);
         // movie already starts with personalRating = -1 in the constructor
 
-        movies.add(movie);
+        for (Category category : movieCategories) {
+            movie.addCategory(category);
+        }
+
+        synchronized (lock) {
+            // a sync may have merged the committed row before we got the lock; it also brought the links
+            Integer slot = slotById.get(dbId);
+            if (slot != null) {
+                return slots.get(slot);
+            }
+            // a catalog too big to load stays in the database; the event still lets a view show the movie
+            if (catalogInMemory) {
+                movies.add(movie);
+                indexMovie(movie, false);
+            }
+        }
+        fire(CatalogEvent.movieAdded(movie));
         return movie;
     }
 
+    // Every video file below root that is not in the catalog yet, see BulkImporter.
+    public BulkImporter.Result importFolder(Path root, List<Category> movieCategories,
+                                            BulkImporter.ProgressListener progressListener)
+            throws IOException, SQLException, InterruptedException {
+        return new BulkImporter(movieDAO, this).importFolder(root, movieCategories, progressListener);
+    }
 
+    // Movies BulkImporter already wrote to the database, with their categories attached.
+    void addImportedMovies(List<Movie> imported) {
+        List<Movie> added = new ArrayList<>(imported.size());
+        synchronized (lock) {
+            for (Movie movie : imported) {
+                // a sync running during the import may have merged the committed chunk already
+                if (slotById.containsKey(movie.getId())) continue;
+                if (catalogInMemory) {
+                    movies.add(movie);
+                    indexMovie(movie, false);
+                }
+                added.add(movie);
+            }
+        }
+        if (!added.isEmpty()) {
+            fire(CatalogEvent.moviesAdded(added));
+        }
+    }
 
 
-    public void deleteMovie(Movie movie) {
 
-        if (movie == null) return;
 
-        try {
-            // delete in DB (also deletes links in CatMovie inside DAO)
-            movieDAO.deleteById(movie.getId());
+    public void deleteMovie(Movie movie) throws SQLException {
+        deleteMovieOrFail(movie);
+    }
 
-            // delete in memory
-            movies.remove(movie);
+    private void deleteMovieOrFail(Movie movie) throws SQLException {
+
+        if (movie == null) return;
 
-        } catch (SQLException ignored) {
+        // delete in DB (also deletes links in CatMovie inside DAO)
+        movieDAO.deleteById(movie.getId());
 
+        // delete in memory
+        synchronized (lock) {
+            movies.remove(movie);
+            unindexMovie(movie);
         }
+        fire(CatalogEvent.movieRemoved(movie));
     }
 
-    public Category addCategory(String name) {
-        try {
-            int id = categoryDAO.create(name);
-            Category created = new Category(id, name);
+    public Category addCategory(String name) throws SQLException {
+        return addCategoryOrFail(name);
+    }
+
+    private Category addCategoryOrFail(String name) throws SQLException {
+        int id = categoryDAO.create(name);
+        Category created = categoryRegistry.resolve(id, name);
+        synchronized (lock) {
             categories.add(created);
-            return created;
-        } catch (SQLException ignored) {
-            return null;
         }
+        fire(CatalogEvent.categoryAdded(created));
+        return created;
     }
 
+    // Snapshot, safe to use while background tasks change the catalog.
     public List<Movie> getMovies() {
-        return movies;
+        synchronized (lock) {
+            return new ArrayList<>(movies);
+        }
     }
 
     public List<Movie> filterByTitle(String text) {
-        List<Movie> result = new ArrayList<>();
+        try (Timer.Sample sample = FILTER_BY_TITLE.start()) {
+            synchronized (lock) {
+                List<Movie> result = new ArrayList<>();
+
+                if (text == null || text.trim().isEmpty()) {  //shows all movies when user didnt type anything
+                    result.addAll(movies);
+                } else {
+                    result = moviesInSlots(titleIndex.search(text));
+                }
+                sample.success(result.size());
+                return result;
+            }
+        }
+    }
 
-        if (text == null || text.trim().isEmpty()) {  //shows all movies when user didnt type anything
-            result.addAll(movies);
-            return result;
+    public List<Movie> filterByMinImdb(double minRating) {  // returns all movies where rating is at least the number user typed
+        synchronized (lock) {
+            return moviesInSlots(imdbIndex.range(minRating, null));
         }
-        String search = text.toLowerCase(); // if text starts from lower case show results for search
+    }
 
-        for (Movie movie : movies) {
-            if (movie.getTitle().toLowerCase().contains(search)) {
-                result.add(movie);
-            }
+    // null bounds are open
+    public List<Movie> filterByImdbRange(Double minRating, Double maxRating) {
+        synchronized (lock) {
+            return moviesInSlots(imdbIndex.range(minRating, maxRating));
         }
-        return result;
     }
 
-    public List<Movie> filterByMinImdb(double minRating) {  // returns all movies where rating is at least the number user typed
-        List<Movie> result = new ArrayList<>();
+    // Only movies that have a personal rating; null bounds are open
+    public List<Movie> filterByPersonalRating(Double minRating, Double maxRating) {
+        synchronized (lock) {
+            return moviesInSlots(personalIndex.range(minRating, maxRating));
+        }
+    }
 
-        for (Movie movie : movies) {  //  for-each loop
-            if (movie.getImdbRating() >= minRating) {
-                result.add(movie);
-            }
+    public List<Movie> getTopRatedByImdb(int count) {
+        synchronized (lock) {
+            return moviesAtSlots(imdbIndex.top(count));
         }
-        return result;
     }
 
-    public List<Movie> filterByCategory(Category category) {  // only filters movies with one category
-        List<Movie> result = new ArrayList<>();
-        if (category == null) {
-            result.addAll(movies);
-            return result;
+    public List<Movie> getTopRatedByPersonalRating(int count) {
+        synchronized (lock) {
+            return moviesAtSlots(personalIndex.top(count));
         }
+    }
 
-        for (Movie movie : movies) {
-            if (movie.getCategories().contains(category)) {
-                result.add(movie);
+    public List<Movie> filterByCategory(Category category) {  // only filters movies with one category
+        synchronized (lock) {
+            List<Movie> result = new ArrayList<>();
+            if (category == null) {
+                result.addAll(movies);
+                return result;
             }
+
+            return moviesInSlots(categoryIndex.slotsOf(category));
         }
-        return result;
     }
 
 
     public List<Movie> filterByCategories(List<Category> selectedCategories) {
-        List<Movie> result = new ArrayList<>();
+        return filterByCategories(selectedCategories, CategoryMatch.ANY);
+    }
 
-        // If user did not select any categories show all movies
+    public List<Movie> filterByCategories(List<Category> selectedCategories, CategoryMatch mode) {
+        try (Timer.Sample sample = FILTER_BY_CATEGORIES.start()) {
+            synchronized (lock) {
+                List<Movie> result = new ArrayList<>();
 
-        if (selectedCategories == null || selectedCategories.isEmpty()) {
-            result.addAll(movies);
-            return result;
-        }
+                // If user did not select any categories show all movies
 
-        for (Movie movie : movies) {
-            for (Category category : selectedCategories) {
-                if (movie.getCategories().contains(category)) {
-                    result.add(movie);
-                    break;    // stop checking this movie
+                if (selectedCategories == null || selectedCategories.isEmpty()) {
+                    result.addAll(movies);
+                } else {
+                    result = moviesInSlots(categoryIndex.match(selectedCategories, mode));
                 }
+                sample.success(result.size());
+                return result;
             }
         }
-        return result;
     }
 
     public List<Movie> filterMovies(String titleText, Double minRating, List<Category> selectedCategories) {
-        List<Movie> result = new ArrayList<>();
+        return filterMovies(titleText, minRating, null, selectedCategories, CategoryMatch.ANY);
+    }
 
-        String search = null;  //prepare title search
-        if (titleText != null && !titleText.isEmpty())
-        {
-            search = titleText.toLowerCase();
-        }
-        boolean useCategoryFilter = selectedCategories != null && !selectedCategories.isEmpty();
-        boolean useImdbFilter = minRating != null;
+    public List<Movie> filterMovies(String titleText, Double minRating, List<Category> selectedCategories, CategoryMatch categoryMatch) {
+        return filterMovies(titleText, minRating, null, selectedCategories, categoryMatch);
+    }
 
-        for (Movie movie : movies) {
-            // title filter
-            if (search != null && !movie.getTitle().toLowerCase().contains(search)) {
-                continue;
+    public List<Movie> filterMovies(String titleText, Double minRating, Double maxRating,
+                                    List<Category> selectedCategories, CategoryMatch categoryMatch) {
+        return filterMovies(new MovieQuery(titleText, minRating, maxRating, selectedCategories, categoryMatch));
+    }
+
+    // Timed including the wait for the lock, which is what the caller experiences.
+    public List<Movie> filterMovies(MovieQuery query) {
+        try (Timer.Sample sample = FILTER_MOVIES.start()) {
+            synchronized (lock) {
+                List<Movie> result = new ArrayList<>();
+
+                if (query.isEmpty()) {
+                    result.addAll(movies);
+                } else {
+                    // the most selective filter reads its index, the others only check its survivors
+                    result.addAll(moviesInSlots(queryPlanner.plan(query).execute()));
+                }
+                sample.success(result.size());
+                return result;
             }
-            // imdb rating filter
-            if (useImdbFilter && movie.getImdbRating() < minRating) {
-                continue;
+        }
+    }
+
+    // Whether one movie passes the query, so a view can decide where a changed movie belongs.
+    public boolean matches(MovieQuery query, Movie movie) {
+        if (query == null || query.isEmpty()) return true;
+        if (!catalogInMemory) {
+            // no slots to check: the movies shown come from search(), test them the way the database did
+            return matchesInDatabase(query, movie);
+        }
+        synchronized (lock) {
+            Integer slot = slotById.get(movie.getId());
+            return slot != null && queryPlanner.plan(query).matches(slot);
+        }
+    }
+
+    private static boolean matchesInDatabase(MovieQuery query, Movie movie) {
+        if (query.hasTitle()
+                && !TitleIndex.normalize(movie.getTitle()).startsWith(TitleIndex.normalize(query.title()))) {
+            return false;
+        }
+        if (query.minImdb() != null && movie.getImdbRating() < query.minImdb()) return false;
+        if (query.maxImdb() != null && movie.getImdbRating() > query.maxImdb()) return false;
+        if (!query.hasCategories()) return true;
+
+        boolean all = query.categoryMatch() == CategoryMatch.ALL;
+        for (Category category : query.categories()) {
+            if (movie.hasCategory(category) != all) {
+                return !all;   // ANY: found one; ALL: one is missing
             }
-            // category filter
-            if (useCategoryFilter) {
-                boolean matchesAtLeastOne = false;
-                for (Category category : selectedCategories)
-                {
-                    if (movie.getCategories().contains(category)) {
-                        matchesAtLeastOne = true;
-                        break;
-                    }
+        }
+        return all;
+    }
+
+    // Titles close to text, best first, tolerating typos, accents and file name noise like ".mkv" or "1080p".
+    public List<Movie> fuzzySearch(String text, int limit) {
+        try (Timer.Sample sample = FUZZY_SEARCH.start()) {
+            synchronized (lock) {
+                List<Movie> result = new ArrayList<>();
+                for (FuzzyTitleSearch.Match match : fuzzyTitles.search(text, limit)) {
+                    result.add(slots.get(match.slot()));
                 }
-                if (!matchesAtLeastOne) {
-                    continue;
+                sample.success(result.size());
+                return result;
+            }
+        }
+    }
+
+    // Stores what FileAvailabilityScanner found and tells the listeners once. Movies no longer in the catalog are skipped.
+    public void applyFileStatuses(Map<Movie, FileStatus> statuses) {
+        int changed = 0;
+        synchronized (lock) {
+            for (Map.Entry<Movie, FileStatus> entry : statuses.entrySet()) {
+                Movie movie = entry.getKey();
+                Integer slot = slotById.get(movie.getId());
+                if (slot != null && slots.get(slot) == movie && movie.getFileStatus() != entry.getValue()) {
+                    movie.setFileStatus(entry.getValue());
+                    changed++;
                 }
             }
-            result.add(movie);
         }
-        return result;
+        if (changed > 0) {
+            fire(CatalogEvent.filesChecked());
+        }
+    }
+
+    // The movie whose file is at path, or null. One lookup in the path map the indexes keep up to date.
+    public Movie findByFilePath(Path path) {
+        synchronized (lock) {
+            Integer slot = slotByPath.get(path.normalize());
+            return slot == null ? null : slots.get(slot);
+        }
+    }
 
+    // Parsed so "C:/a/b.mp4" and "C:\a\b.mp4" are the same key; null for paths that cannot be parsed.
+    private static Path pathKey(String filePath) {
+        if (filePath == null || filePath.isBlank()) return null;
+        try {
+            return Path.of(filePath).normalize();
+        } catch (InvalidPathException e) {
+            return null;
+        }
+    }
 
+    // False until the catalog is loaded, and for catalogs too big to load at all.
+    public boolean isCatalogInMemory() {
+        return catalogInMemory;
+    }
+
+    // One sorted page of the matching movies. Runs on the loaded catalog when there is one, otherwise as a
+    // single statement in the database, so it works without reading the whole table. Database results are
+    // complete with their categories but are not part of the catalog. The database only matches titles from
+    // their start, which an index can seek; the loaded catalog matches the text anywhere in the title.
+    // after is the last movie of the previous page, null for the first one.
+    public List<Movie> search(MovieQuery query, MovieOrder order, Movie after, int limit) throws SQLException {
+        if (catalogInMemory) {
+            // the catalog lists movies in load and insert order, not by id
+            Comparator<Movie> comparator = (order == MovieOrder.TITLE) ? TITLE_ORDER : NEWEST_ORDER;
+            List<Movie> result = filterMovies(query);
+            result.sort(comparator);
+            int from = 0;
+            if (after != null) {
+                // after may be gone by now, the insertion point is still where the next page starts
+                int found = Collections.binarySearch(result, after, comparator);
+                from = (found >= 0) ? found + 1 : -found - 1;
+            }
+            int to = Math.min(from + limit, result.size());
+            return new ArrayList<>(result.subList(from, to));
+        }
+
+        try (Timer.Sample sample = SEARCH.start()) {
+            List<Integer> categoryIds = new ArrayList<>();
+            for (Category category : query.categories()) {
+                categoryIds.add(category.getId());
+            }
+            MovieSearch.Sort sort = (order == MovieOrder.TITLE) ? MovieSearch.Sort.TITLE : MovieSearch.Sort.NEWEST_FIRST;
+            List<Movie> page = movieDAO.search(new MovieSearch(query.title(), query.minImdb(), query.maxImdb(),
+                    categoryIds, query.categoryMatch() == CategoryMatch.ALL, sort,
+                    (after == null || sort != MovieSearch.Sort.TITLE) ? null : after.getTitle(),
+                    after == null ? null : after.getId(), limit));
+
+            Map<Integer, Movie> byId = new HashMap<>();
+            List<Integer> ids = new ArrayList<>(page.size());
+            for (Movie movie : page) {
+                byId.put(movie.getId(), movie);
+                ids.add(movie.getId());
+            }
+            catMovieDAO.forEachLinkOf(ids, (movieId, categoryId) -> {
+                Category category = categoryRegistry.get(categoryId);
+                if (category != null) {
+                    byId.get(movieId).addCategory(category);
+                }
+            });
+            sample.success(page.size());
+            return page;
+        }
+    }
+
+    // Describes the order filterMovies would evaluate the filters in, with estimated and actual row counts.
+    public String explain(MovieQuery query) {
+        synchronized (lock) {
+            QueryPlan plan = queryPlanner.plan(query);
+            plan.execute();
+            return plan.explain();
+        }
     }
 
     public List<Category> getCategories() {
-        return categories;
+        synchronized (lock) {
+            return new ArrayList<>(categories);
+        }
     }
 
 
 
 
     public void removeCategory(Category category) {
+        try {
+            removeCategoryOrFail(category);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void removeCategoryOrFail(Category category) throws SQLException {
         if (category == null) return;
 
-        // Remove category from all movies (DB + memory)
-        for (Movie movie : movies) {
-            if (movie.getCategories().contains(category)) {
-                removeCategoryFromMovie(movie, category); // uses your existing method
+        // Delete category itself from DB (the DAO also deletes its CatMovie links)
+        categoryDAO.deleteById(category.getId());
+
+        synchronized (lock) {
+            // Remove category from the movies that have it, found through the index instead of a full scan
+            for (Movie movie : moviesInSlots(categoryIndex.slotsOf(category))) {
+                movie.removeCategory(category);
             }
+            categoryIndex.removeCategory(category);
+
+            // Remove from in-memory list
+            categories.remove(category);
+            categoryRegistry.remove(category.getId());
         }
+        fire(CatalogEvent.categoryRemoved(category));
+    }
 
-        // Delete category itself from DB
+    // Every movie holds the registry's Category object, so renaming it once renames it everywhere.
+    public boolean renameCategory(Category category, String name) {
         try {
-            categoryDAO.deleteById(category.getId());
-        } catch (SQLException ignored) {
-            // fail silently
+            return renameCategoryOrFail(category, name);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
         }
+    }
 
-        // Remove from in-memory list
-        categories.remove(category);
+    private boolean renameCategoryOrFail(Category category, String name) throws SQLException {
+        if (category == null || !categoryDAO.rename(category.getId(), name)) return false;
+
+        Category renamed;
+        synchronized (lock) {
+            renamed = categoryRegistry.rename(category.getId(), name);
+        }
+        if (renamed == null) return false;
+        fire(CatalogEvent.categoryUpdated(renamed));
+        return true;
     }
 
 
 
 
+    // Not viewed for two years (or never) and unrated or rated below 6; the cutoff date is cached in the warning index.
     public WarningType getWarningType(Movie movie) {
-        LocalDate last = movie.getLastView();
-        boolean oldOrNever = (last == null) || last.isBefore(LocalDate.now().minusYears(2));
-
-        if (!oldOrNever) {
-            return WarningType.NONE;
-        }
-        if (!movie.hasPersonalRating()) {
-            return WarningType.OLD_NO_RATING;
-        } else if (movie.getPersonalRating() < 6) {
-            return WarningType.OLD_LOW_RATING;
-        } else {
-            return WarningType.NONE;
-        }
+        return warningIndex.classify(movie.getLastView(), movie.getPersonalRating());
     }
+
     public boolean shouldWarn(Movie movie) {
         return getWarningType(movie) != WarningType.NONE;
     }
 
-    public void setPersonalRating(Movie movie, double rating) {
-        movie.setPersonalRating(rating);
+    // All movies with the given warning, read from the warning index instead of checking every movie.
+    public List<Movie> getMoviesToWarn(WarningType type) {
+        warningIndex.rollForward(LocalDate.now());
+        synchronized (lock) {
+            return moviesAtSlots(warningIndex.slotsWith(type));
+        }
+    }
 
-        try {
-            movieDAO.updatePersonalRating(movie.getId(), rating);
-        } catch (SQLException ignored) {
+    // Both kinds of warning, in the order of getMovies().
+    public List<Movie> getMoviesToWarn() {
+        warningIndex.rollForward(LocalDate.now());
+        synchronized (lock) {
+            BitSet hits = new BitSet(slots.size());
+            for (int slot : warningIndex.slotsWith(WarningType.OLD_NO_RATING)) hits.set(slot);
+            for (int slot : warningIndex.slotsWith(WarningType.OLD_LOW_RATING)) hits.set(slot);
+            return moviesInSlots(hits);
+        }
+    }
 
+    public void setPersonalRating(Movie movie, double rating) {
+        synchronized (lock) {
+            Integer slot = slotById.get(movie.getId());
+            if (slot != null) {
+                if (movie.hasPersonalRating()) personalIndex.remove(slot, movie.getPersonalRating());
+                warningIndex.remove(slot, movie.getLastView(), movie.getPersonalRating());
+            }
+            movie.setPersonalRating(rating);
+            if (slot != null) {
+                if (movie.hasPersonalRating()) personalIndex.add(slot, rating);
+                warningIndex.add(slot, movie.getLastView(), rating);
+            }
+            // queued under the lock, so a snapshot never holds the new value without it being pending
+            writeQueue.setPersonalRating(movie.getId(), rating);
         }
+        fire(CatalogEvent.movieUpdated(movie));
     }
 
     public void markAsViewed(Movie movie) {
         LocalDate now = LocalDate.now();
-        movie.setLastView(now);
-
-        try {
-            movieDAO.updateLastView(movie.getId(), now);
-        } catch (SQLException ignored) {
+        synchronized (lock) {
+            Integer slot = slotById.get(movie.getId());
+            if (slot != null) warningIndex.remove(slot, movie.getLastView(), movie.getPersonalRating());
+            movie.setLastView(now);
+            if (slot != null) warningIndex.add(slot, now, movie.getPersonalRating());
+            writeQueue.setLastView(movie.getId(), now);
         }
+        fire(CatalogEvent.movieUpdated(movie));
     }
 
     public void loadMovies() {
         try {
-            movies.clear();
-            movies.addAll(movieDAO.getAll());
-
-            for (Movie m : movies) {
-                m.getCategories().clear();
-                m.getCategories().addAll(catMovieDAO.getCategoriesForMovie(m.getId()));
-            }
+            loadMoviesOrFail();
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
+    private void loadMoviesOrFail() throws SQLException {
+        try (Timer.Sample sample = LOAD_MOVIES.start()) {
+            sample.success(reloadMovies());
+        }
+    }
+
+    // Returns the number of movies loaded.
+    private int reloadMovies() throws SQLException {
+        // read the version first: anything changed while loading is merged again by the next sync
+        long version = currentVersionOrUnknown();
+
+        if (movieDAO.count() > IN_MEMORY_LIMIT) {
+            // too big to hold: keep the catalog empty, searches go to the database
+            synchronized (lock) {
+                store = new MovieStore();
+                movies.clear();
+                rebuildIndexes();
+                syncVersion = -1;
+                catalogInMemory = false;
+            }
+            fire(CatalogEvent.reloaded());
+            return 0;
+        }
+
+        List<Movie> loaded = new ArrayList<>();
+        movieDAO.forEachMovie(1000, loaded::add);
+
+        if (getCategories().isEmpty()) {
+            loadCategoriesOrFail();
+        }
+        Map<Integer, Category> categoryById = new HashMap<>();
+        for (Category c : getCategories()) {
+            categoryById.put(c.getId(), c);
+        }
+
+        Map<Integer, Movie> byId = new HashMap<>();
+        for (Movie m : loaded) {
+            byId.put(m.getId(), m);
+        }
+
+        // one query for all links instead of one per movie
+        List<int[]> unknownLinks = new ArrayList<>();
+        catMovieDAO.forEachLink((movieId, categoryId) -> {
+            Movie movie = byId.get(movieId);
+            if (movie == null) return;   // movie inserted after getAll() ran
+
+            Category category = categoryById.get(categoryId);
+            if (category != null) {
+                movie.addCategory(category);
+            } else {
+                unknownLinks.add(new int[]{movieId, categoryId});
+            }
+        });
+
+        // a category created elsewhere since loadCategories(); refresh once and retry
+        if (!unknownLinks.isEmpty()) {
+            loadCategoriesOrFail();
+            for (Category c : getCategories()) {
+                categoryById.put(c.getId(), c);
+            }
+            for (int[] link : unknownLinks) {
+                Category category = categoryById.get(link[1]);
+                if (category != null) {
+                    byId.get(link[0]).addCategory(category);
+                }
+            }
+        }
+
+        synchronized (lock) {
+            store = new MovieStore(loaded.size());
+            movies.clear();
+            movies.addAll(loaded);
+            rebuildIndexes();
+            syncVersion = version;
+            catalogInMemory = true;
+        }
+        fire(CatalogEvent.reloaded());
+        return loaded.size();
+    }
+
     public void loadCategories() {
         try {
-            categories.clear();
-            categories.addAll(categoryDAO.getAll());
+            loadCategoriesOrFail();
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
-}
+    private void loadCategoriesOrFail() throws SQLException {
+        List<Category> rows = categoryDAO.getAll();
+        synchronized (lock) {
+            List<Category> loaded = new ArrayList<>(rows.size());
+            for (Category row : rows) {
+                loaded.add(resolveRow(row));
+            }
+            categories.clear();
+            categories.addAll(loaded);
+            categoryRegistry.retainOnly(loaded);
+        }
+        fire(CatalogEvent.reloaded());
+    }
+
+    // ---- asynchronous API, used by the GUI ----
+
+    // Categories first, then movies, so the links can be attached to the loaded categories.
+    // With a usable snapshot the database is not asked at all; startSync() reconciles afterwards.
+    public CompletableFuture<Void> loadAllAsync() {
+        return runAsync("loadAllAsync", () -> {
+            if (!loadSnapshot()) {
+                loadCategoriesOrFail();
+                loadMoviesOrFail();
+            }
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> loadMoviesAsync() {
+        return runAsync("loadMoviesAsync", () -> {
+            loadMoviesOrFail();
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> loadCategoriesAsync() {
+        return runAsync("loadCategoriesAsync", () -> {
+            loadCategoriesOrFail();
+            return null;
+        });
+    }
+
+    public CompletableFuture<Movie> addMovieAsync(String title, double imdbRating, String fileLink, List<Category> movieCategories) {
+        List<Category> copy = List.copyOf(movieCategories);
+        return runAsync("addMovieAsync", () -> addMovie(title, imdbRating, fileLink, copy));
+    }
+
+    public CompletableFuture<BulkImporter.Result> importFolderAsync(Path root, List<Category> movieCategories,
+                                                                  BulkImporter.ProgressListener progressListener) {
+        List<Category> copy = List.copyOf(movieCategories);
+        return runAsync("importFolderAsync", () -> importFolder(root, copy, progressListener));
+    }
 
+    public CompletableFuture<Void> deleteMovieAsync(Movie movie) {
+        return runAsync("deleteMovieAsync", () -> {
+            deleteMovieOrFail(movie);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Category> addCategoryAsync(String name) {
+        return runAsync("addCategoryAsync", () -> addCategoryOrFail(name));
+    }
+
+    public CompletableFuture<Void> removeCategoryAsync(Category category) {
+        return runAsync("removeCategoryAsync", () -> {
+            removeCategoryOrFail(category);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Boolean> renameCategoryAsync(Category category, String name) {
+        return runAsync("renameCategoryAsync", () -> renameCategoryOrFail(category, name));
+    }
+
+    public CompletableFuture<Void> setPersonalRatingAsync(Movie movie, double rating) {
+        return runAsync("setPersonalRatingAsync", () -> {
+            setPersonalRating(movie, rating);
+            return null;
+        });
+    }
+
+    // Checks the file on a background thread, network drives can be slow to answer.
+    public CompletableFuture<Boolean> fileExistsAsync(Movie movie) {
+        return runAsync("fileExistsAsync", () -> movie.getFilePath() != null && new File(movie.getFilePath()).exists());
+    }
+
+    public CompletableFuture<Void> markAsViewedAsync(Movie movie) {
+        return runAsync("markAsViewedAsync", () -> {
+            markAsViewed(movie);
+            return null;
+        });
+    }
 
+    // Until the catalog is in memory (or when it never will be) the first matches come from the database.
+    public CompletableFuture<List<Movie>> filterMoviesAsync(MovieQuery query) {
+        return runCancellableAsync("filterMoviesAsync", () -> catalogInMemory
+                ? filterMovies(query)
+                : search(query, MovieOrder.NEWEST_FIRST, null, DATABASE_FILTER_LIMIT));
+    }
+
+    public CompletableFuture<List<Movie>> fuzzySearchAsync(String text, int limit) {
+        return runCancellableAsync("fuzzySearchAsync", () -> fuzzySearch(text, limit));
+    }
+
+    public CompletableFuture<List<Movie>> searchAsync(MovieQuery query, MovieOrder order, Movie after, int limit) {
+        return runCancellableAsync("searchAsync", () -> search(query, order, after, limit));
+    }
+
+    // One page read straight from the database, to show movies before the full load has finished.
+    // after is the last movie of the previous page, null for the first one. Page movies are not part of the catalog.
+    public CompletableFuture<List<Movie>> loadPageAsync(MovieOrder order, Movie after, int pageSize) {
+        return runAsync("loadPageAsync", () -> switch (order) {
+            case NEWEST_FIRST -> movieDAO.getPageById(after == null ? null : after.getId(), pageSize);
+            case TITLE -> movieDAO.getPageByTitle(after == null ? null : after.getTitle(),
+                    after == null ? 0 : after.getId(), pageSize);
+        });
+    }
+
+    public CompletableFuture<List<Movie>> getMoviesToWarnAsync() {
+        return runAsync("getMoviesToWarnAsync", this::getMoviesToWarn);
+    }
+
+    public void shutdown() {
+        // updates that could not be written are reported, which also keeps the snapshot from being saved
+        writeQueue.shutdown();
+        executor.shutdown();
+        clockScheduler.shutdownNow();
+        if (syncScheduler != null) {
+            syncScheduler.shutdownNow();
+        }
+        saveSnapshotIfChanged();
+    }
+
+    // ---- local snapshot ----
+
+    // Replaces the catalog with the snapshot file, if there is a readable one.
+    private boolean loadSnapshot() {
+        if (snapshotPath == null || !Files.exists(snapshotPath)) return false;
+
+        CatalogSnapshot snapshot;
+        try (Timer.Sample sample = SNAPSHOT_LOAD.start()) {
+            snapshot = CatalogSnapshot.read(snapshotPath, categoryRegistry);
+            sample.success(snapshot.movies().size());
+        } catch (IOException e) {
+            System.err.println("Ignoring catalog snapshot: " + e.getMessage());
+            return false;
+        }
+
+        synchronized (lock) {
+            categories.clear();
+            categories.addAll(snapshot.categories());
+            store = new MovieStore(snapshot.movies().size());
+            movies.clear();
+            movies.addAll(snapshot.movies());
+            rebuildIndexes();
+            syncVersion = snapshot.syncVersion();
+            catalogInMemory = true;
+        }
+        restoredFromSnapshot = true;
+        fire(CatalogEvent.reloaded());
+        savedChangeCount = changeCount.get();
+        return true;
+    }
+
+    // Writes the snapshot unless nothing changed since the last save or load. Deletes it once writes were lost.
+    public void saveSnapshotIfChanged() {
+        if (snapshotPath == null) return;
+        // ratings and view dates still queued would be in the snapshot but not in the database after a crash;
+        // flushed first, since updates it gives up on set writesLost
+        writeQueue.flush();
+        if (writesLost) {
+            // an earlier save may already hold the unsaved values; the next start loads from the database instead
+            try {
+                Files.deleteIfExists(snapshotPath);
+            } catch (IOException e) {
+                System.err.println("Could not delete the catalog snapshot: " + e.getMessage());
+            }
+            return;
+        }
+
+        long count = changeCount.get();
+        if (!catalogInMemory || count == savedChangeCount) return;
+
+        try (Timer.Sample sample = SNAPSHOT_SAVE.start()) {
+            byte[] encoded = null;
+            int movieCount;
+            synchronized (lock) {
+                // encoded under the lock so movies, links and version belong together, and nothing gets queued meanwhile
+                movieCount = movies.size();
+                if (!writeQueue.hasPending()) {
+                    encoded = CatalogSnapshot.encode(syncVersion, categories, movies);
+                }
+            }
+            if (encoded == null) {
+                // the flush is retrying or new updates came in; the next run saves
+                sample.success();
+                return;
+            }
+            CatalogSnapshot.write(snapshotPath, encoded);
+            savedChangeCount = count;
+            sample.success(movieCount);
+        } catch (IOException e) {
+            System.err.println("Could not save the catalog snapshot: " + e.getMessage());
+        }
+    }
+
+    // ---- delta synchronization with the database ----
+
+    // Runs syncNow() on a schedule. Does nothing useful until change tracking is enabled (db/change_tracking.sql).
+    public void startSync(Duration interval) {
+        if (syncScheduler != null) return;
+
+        syncScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "catalog-sync");
+            t.setDaemon(true);
+            return t;
+        });
+        // a catalog restored from the snapshot is brought up to date right away
+        long initialDelay = restoredFromSnapshot ? 0 : interval.toMillis();
+        syncScheduler.scheduleWithFixedDelay(() -> {
+            try {
+                if (restoredFromSnapshot) {
+                    reconcileSnapshot();
+                } else {
+                    syncNow();
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }, initialDelay, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    // Without change tracking the snapshot has no version to sync from, so the catalog is reloaded instead.
+    private void reconcileSnapshot() throws SQLException {
+        if (syncVersion < 0) {
+            loadCategoriesOrFail();
+            loadMoviesOrFail();
+        } else {
+            syncNow();
+        }
+        restoredFromSnapshot = false;
+    }
+
+    // Merges the rows changed since the last load or sync into the catalog, so the cost depends on what changed.
+    public void syncNow() throws SQLException {
+        try (Timer.Sample sample = SYNC.start()) {
+            sample.success(syncChanges());
+        }
+    }
+
+    // Returns the number of changed rows merged; 0 when nothing was merged or a full reload ran instead.
+    private int syncChanges() throws SQLException {
+        long since = syncVersion;
+        if (since < 0) {
+            return 0;
+        }
+
+        long current = changeTrackingDAO.getCurrentVersion();
+        if (current == since) {
+            return 0;
+        }
+
+        for (String table : List.of("dbo.Movie", "dbo.Category", "dbo.CatMovie")) {
+            if (since < changeTrackingDAO.getMinValidVersion(table)) {
+                // the server already cleaned up the changes we would need
+                loadCategoriesOrFail();
+                loadMoviesOrFail();
+                return 0;
+            }
+        }
+
+        Delta<Category, Integer> categoryDelta = categoryDAO.getChangesSince(since);
+        Delta<Movie, Integer> movieDelta = movieDAO.getChangesSince(since);
+        Delta<CatMovieDAO.Link, CatMovieDAO.Link> linkDelta = catMovieDAO.getChangesSince(since);
+
+        List<CatalogEvent> events = new ArrayList<>();
+        synchronized (lock) {
+            // a reload finished meanwhile and already contains these changes, or left the catalog in the database
+            if (syncVersion != since || !catalogInMemory) {
+                return 0;
+            }
+            mergeCategories(categoryDelta, events);
+            mergeMovies(movieDelta, events);
+            mergeLinks(linkDelta, events);
+            syncVersion = current;
+        }
+
+        for (CatalogEvent event : events) {
+            fire(event);
+        }
+        return categoryDelta.changed().size() + categoryDelta.deleted().size()
+                + movieDelta.changed().size() + movieDelta.deleted().size()
+                + linkDelta.changed().size() + linkDelta.deleted().size();
+    }
+
+    private long currentVersionOrUnknown() {
+        try {
+            return changeTrackingDAO.getCurrentVersion();
+        } catch (SQLException e) {
+            return -1;   // change tracking not enabled: only full reloads
+        }
+    }
+
+    private void mergeCategories(Delta<Category, Integer> delta, List<CatalogEvent> events) {
+        Map<Integer, Category> byId = categoriesById();
+
+        for (Category changed : delta.changed()) {
+            Category existing = byId.get(changed.getId());
+            if (existing == null) {
+                Category added = resolveRow(changed);
+                categories.add(added);
+                byId.put(added.getId(), added);
+                events.add(CatalogEvent.categoryAdded(added));
+            } else if (!existing.getName().equals(changed.getName())) {
+                categoryRegistry.rename(existing.getId(), changed.getName());
+                events.add(CatalogEvent.categoryUpdated(existing));
+            }
+        }
+
+        for (int id : delta.deleted()) {
+            Category existing = byId.remove(id);
+            if (existing == null) continue;
+
+            for (Movie movie : moviesInSlots(categoryIndex.slotsOf(existing))) {
+                movie.removeCategory(existing);
+            }
+            categoryIndex.removeCategory(existing);
+            categories.remove(existing);
+            categoryRegistry.remove(id);
+            events.add(CatalogEvent.categoryRemoved(existing));
+        }
+    }
+
+    // The shared category for a row read from the database, renamed if the row has a newer name. Call under the lock.
+    private Category resolveRow(Category row) {
+        Category category = categoryRegistry.resolve(row.getId(), row.getName());
+        if (!Objects.equals(category.getName(), row.getName())) {
+            categoryRegistry.rename(row.getId(), row.getName());
+        }
+        return category;
+    }
+
+    private void mergeMovies(Delta<Movie, Integer> delta, List<CatalogEvent> events) {
+        for (Movie changed : delta.changed()) {
+            Integer slot = slotById.get(changed.getId());
+            if (slot == null) {
+                // its categories arrive with the link changes
+                movies.add(changed);
+                indexMovie(changed, false);
+                events.add(CatalogEvent.movieAdded(changed));
+                continue;
+            }
+
+            Movie existing = slots.get(slot);
+            removeFromIndexes(slot, existing);
+            existing.setTitle(changed.getTitle());
+            existing.setImdbRating(changed.getImdbRating());
+            if (!Objects.equals(existing.getFilePath(), changed.getFilePath())) {
+                existing.setFilePath(changed.getFilePath());
+                existing.setFileStatus(FileStatus.UNKNOWN);   // tells the scanner to check the new path
+            }
+            // our own queued update is newer than what the database has
+            if (!writeQueue.hasPending(existing.getId())) {
+                existing.setPersonalRating(changed.getPersonalRating());
+                existing.setLastView(changed.getLastView());
+            }
+            addToIndexes(slot, existing, false);
+            events.add(CatalogEvent.movieUpdated(existing));
+        }
+
+        for (int id : delta.deleted()) {
+            Integer slot = slotById.get(id);
+            if (slot == null) continue;
+
+            Movie existing = slots.get(slot);
+            movies.remove(existing);
+            unindexMovie(existing);
+            events.add(CatalogEvent.movieRemoved(existing));
+        }
+    }
+
+    private void mergeLinks(Delta<CatMovieDAO.Link, CatMovieDAO.Link> delta, List<CatalogEvent> events) {
+        Map<Integer, Category> byId = categoriesById();
+        Set<Movie> touched = new LinkedHashSet<>();
+
+        for (CatMovieDAO.Link link : delta.deleted()) {
+            Integer slot = slotById.get(link.movieId());
+            Category category = byId.get(link.categoryId());
+            if (slot == null || category == null) continue;
+
+            Movie movie = slots.get(slot);
+            movie.removeCategory(category);
+            categoryIndex.remove(slot, category);
+            touched.add(movie);
+        }
+
+        for (CatMovieDAO.Link link : delta.changed()) {
+            Integer slot = slotById.get(link.movieId());
+            Category category = byId.get(link.categoryId());
+            if (slot == null || category == null) continue;
+
+            Movie movie = slots.get(slot);
+            if (!movie.hasCategory(category)) {
+                movie.addCategory(category);
+                categoryIndex.add(slot, category);
+                touched.add(movie);
+            }
+        }
+
+        for (Movie movie : touched) {
+            events.add(CatalogEvent.movieUpdated(movie));
+        }
+    }
+
+    private Map<Integer, Category> categoriesById() {
+        Map<Integer, Category> byId = new HashMap<>();
+        for (Category category : categories) {
+            byId.put(category.getId(), category);
+        }
+        return byId;
+    }
+
+    // Every async operation is timed under its own name, including the time it waits for the lock.
+    private <T> CompletableFuture<T> runAsync(String operation, Callable<T> task) {
+        Timer timer = Metrics.timer("MovieService." + operation);
+        return CompletableFuture.supplyAsync(() -> {
+            try (Timer.Sample sample = timer.start()) {
+                T result = task.call();
+                sample.success();
+                return result;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    // For queries a newer one may supersede: cancelling the returned future keeps the task from starting,
+    // or interrupts it if it already runs, so typing quickly never leaves a queue of stale work behind.
+    private <T> CompletableFuture<T> runCancellableAsync(String operation, Callable<T> task) {
+        Timer timer = Metrics.timer("MovieService." + operation);
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> running = executor.submit(() -> {
+            if (result.isDone()) return;   // cancelled while queued
+            try (Timer.Sample sample = timer.start()) {
+                T value = task.call();
+                sample.success();
+                result.complete(value);
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        });
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                running.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private void indexMovie(Movie movie, boolean bulk) {
+        store.attach(movie);
+        int slot = slots.size();
+        slots.add(movie);
+        slotById.put(movie.getId(), slot);
+        addToIndexes(slot, movie, bulk);
+    }
+
+    private void unindexMovie(Movie movie) {
+        Integer slot = slotById.remove(movie.getId());
+        if (slot == null) return;
+
+        slots.set(slot, null);
+        removeFromIndexes(slot, movie);
+        store.detach(movie);   // it keeps its values for whoever still holds it
+        freeSlots++;
+
+        // compact once most slots are empty
+        if (freeSlots > 1024 && freeSlots > slots.size() / 2) {
+            rebuildIndexes();
+        }
+    }
+
+    private void addToIndexes(int slot, Movie movie, boolean bulk) {
+        Path path = pathKey(movie.getFilePath());
+        if (path != null) slotByPath.put(path, slot);
+        titleIndex.add(slot, movie.getTitle());
+        fuzzyTitles.add(slot, movie.getTitle());
+        for (Category category : movie.getCategories()) {
+            categoryIndex.add(slot, category);
+        }
+
+        if (bulk) {
+            imdbIndex.addUnsorted(slot, movie.getImdbRating());
+            if (movie.hasPersonalRating()) personalIndex.addUnsorted(slot, movie.getPersonalRating());
+        } else {
+            imdbIndex.add(slot, movie.getImdbRating());
+            if (movie.hasPersonalRating()) personalIndex.add(slot, movie.getPersonalRating());
+        }
+        warningIndex.add(slot, movie.getLastView(), movie.getPersonalRating());
+    }
+
+    private void removeFromIndexes(int slot, Movie movie) {
+        Path path = pathKey(movie.getFilePath());
+        if (path != null) slotByPath.remove(path, slot);
+        titleIndex.remove(slot);
+        fuzzyTitles.remove(slot);
+        for (Category category : movie.getCategories()) {
+            categoryIndex.remove(slot, category);
+        }
+        imdbIndex.remove(slot, movie.getImdbRating());
+        if (movie.hasPersonalRating()) personalIndex.remove(slot, movie.getPersonalRating());
+        warningIndex.remove(slot, movie.getLastView(), movie.getPersonalRating());
+    }
+
+    private void rebuildIndexes() {
+        slots.clear();
+        slotById.clear();
+        slotByPath.clear();
+        freeSlots = 0;
+        titleIndex.clear();
+        fuzzyTitles.clear();
+        categoryIndex.clear();
+        imdbIndex.clear();
+        personalIndex.clear();
+        warningIndex.clear();
+
+        for (Movie movie : movies) {
+            indexMovie(movie, true);
+        }
+    }
+
+    // Slots are handed out in list order, so walking the bits keeps the order of getMovies().
+    private List<Movie> moviesInSlots(BitSet hits) {
+        List<Movie> result = new ArrayList<>(hits.cardinality());
+        for (int slot = hits.nextSetBit(0); slot >= 0; slot = hits.nextSetBit(slot + 1)) {
+            result.add(slots.get(slot));
+        }
+        return result;
+    }
+
+    private List<Movie> moviesAtSlots(int[] slotList) {
+        List<Movie> result = new ArrayList<>(slotList.length);
+        for (int slot : slotList) {
+            result.add(slots.get(slot));
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,93 @@
+package bll;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+// Filters ordered from most to least selective. The first one reads its index,
+// the rest are only evaluated on the slots that survived so far.
+public class QueryPlan {
+
+    private final List<Step> steps;
+    private final int[] actualRows;
+    private boolean executed;
+
+    QueryPlan(List<Step> steps) {
+        this.steps = steps;
+        this.actualRows = new int[steps.size()];
+    }
+
+    public boolean isEmpty() {
+        return steps.isEmpty();
+    }
+
+    // Matching slots; null when the plan has no filters at all.
+    public BitSet execute() {
+        if (steps.isEmpty()) return null;
+
+        BitSet hits = steps.get(0).candidates();
+        actualRows[0] = hits.cardinality();
+
+        for (int i = 1; i < steps.size(); i++) {
+            // a superseded search stops between steps instead of finishing work nobody will look at
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("query was superseded");
+            }
+            Step step = steps.get(i);
+            for (int slot = hits.nextSetBit(0); slot >= 0; slot = hits.nextSetBit(slot + 1)) {
+                if (!step.test(slot)) {
+                    hits.clear(slot);
+                }
+            }
+            actualRows[i] = hits.cardinality();
+        }
+        executed = true;
+        return hits;
+    }
+
+    // Whether a single slot passes every filter.
+    public boolean matches(int slot) {
+        for (Step step : steps) {
+            if (!step.test(slot)) return false;
+        }
+        return true;
+    }
+
+    // One line per step with its estimate, and the real row count once the plan has run.
+    public String explain() {
+        if (steps.isEmpty()) {
+            return "no filters: all movies";
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < steps.size(); i++) {
+            Step step = steps.get(i);
+            sb.append(i == 0 ? "index scan: " : "then check: ")
+              .append(step.describe())
+              .append(" (est. ").append(step.estimate()).append(" rows");
+            if (executed) {
+                sb.append(", actual ").append(actualRows[i]);
+            }
+            sb.append(")\n");
+        }
+        return sb.toString();
+    }
+
+    abstract static class Step {
+        private final int estimate;
+
+        Step(int estimate) {
+            this.estimate = estimate;
+        }
+
+        int estimate() {
+            return estimate;
+        }
+
+        abstract BitSet candidates();
+
+        abstract boolean test(int slot);
+
+        abstract String describe();
+    }
+}
@@ -0,0 +1,148 @@
+package bll;
+
+import model.Category;
+import model.Movie;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Turns a MovieQuery into a QueryPlan: every filter estimates how many movies it lets through,
+// the most selective one produces the candidate slots from its index, the others only check those.
+public class QueryPlanner {
+
+    private final TitleIndex titleIndex;
+    private final CategoryIndex categoryIndex;
+    private final RatingIndex imdbIndex;
+    private final List<Movie> slots;
+
+    public QueryPlanner(TitleIndex titleIndex, CategoryIndex categoryIndex, RatingIndex imdbIndex, List<Movie> slots) {
+        this.titleIndex = titleIndex;
+        this.categoryIndex = categoryIndex;
+        this.imdbIndex = imdbIndex;
+        this.slots = slots;
+    }
+
+    public QueryPlan plan(MovieQuery query) {
+        List<QueryPlan.Step> steps = new ArrayList<>();
+
+        if (query.hasTitle()) {
+            steps.add(new TitleStep(query.title()));
+        }
+        if (query.hasImdbRange()) {
+            steps.add(new ImdbStep(query.minImdb(), query.maxImdb()));
+        }
+        if (query.hasCategories()) {
+            steps.add(new CategoryStep(query.categories(), query.categoryMatch()));
+        }
+
+        steps.sort(Comparator.comparingInt(QueryPlan.Step::estimate));
+        return new QueryPlan(steps);
+    }
+
+    private final class TitleStep extends QueryPlan.Step {
+        private final String text;
+        private final String normalized;
+
+        TitleStep(String text) {
+            super(titleIndex.estimate(text));
+            this.text = text;
+            this.normalized = TitleIndex.normalize(text);
+        }
+
+        @Override
+        BitSet candidates() {
+            return titleIndex.search(text);
+        }
+
+        @Override
+        boolean test(int slot) {
+            return titleIndex.matches(slot, normalized);
+        }
+
+        @Override
+        String describe() {
+            return "title contains \"" + text + "\"";
+        }
+    }
+
+    private final class ImdbStep extends QueryPlan.Step {
+        private final Double min;
+        private final Double max;
+
+        ImdbStep(Double min, Double max) {
+            super(imdbIndex.count(min, max));
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        BitSet candidates() {
+            return imdbIndex.range(min, max);
+        }
+
+        @Override
+        boolean test(int slot) {
+            double rating = slots.get(slot).getImdbRating();
+            return (min == null || rating >= min) && (max == null || rating <= max);
+        }
+
+        @Override
+        String describe() {
+            return "imdb in [" + (min == null ? "-" : min) + ", " + (max == null ? "-" : max) + "]";
+        }
+    }
+
+    private final class CategoryStep extends QueryPlan.Step {
+        private final List<Category> categories;
+        private final CategoryMatch match;
+        private final BitSet[] bitmaps;
+
+        CategoryStep(List<Category> categories, CategoryMatch match) {
+            super(estimateCategories(categories, match));
+            this.categories = categories;
+            this.match = match;
+            this.bitmaps = new BitSet[categories.size()];
+            for (int i = 0; i < bitmaps.length; i++) {
+                bitmaps[i] = categoryIndex.slotsOf(categories.get(i));
+            }
+        }
+
+        @Override
+        BitSet candidates() {
+            return categoryIndex.match(categories, match);
+        }
+
+        @Override
+        boolean test(int slot) {
+            for (BitSet bitmap : bitmaps) {
+                boolean in = bitmap.get(slot);
+                if (in && match == CategoryMatch.ANY) return true;
+                if (!in && match == CategoryMatch.ALL) return false;
+            }
+            return match == CategoryMatch.ALL;
+        }
+
+        @Override
+        String describe() {
+            return "category " + match + " " + categories.stream().map(Category::getName).collect(Collectors.joining(", ", "[", "]"));
+        }
+    }
+
+    private int estimateCategories(List<Category> categories, CategoryMatch match) {
+        if (match == CategoryMatch.ALL) {
+            int min = Integer.MAX_VALUE;
+            for (Category category : categories) {
+                min = Math.min(min, categoryIndex.count(category));
+            }
+            return min;
+        }
+        long sum = 0;
+        for (Category category : categories) {
+            sum += categoryIndex.count(category);
+        }
+        return (int) Math.min(sum, slots.size());
+    }
+}
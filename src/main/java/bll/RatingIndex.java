@@ -0,0 +1,183 @@
+package bll;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+// Movie slots sorted by a rating, kept in two parallel primitive arrays.
+// Range queries are two binary searches, top-N reads from the end of the arrays.
+public class RatingIndex {
+
+    private double[] keys = new double[16];
+    private int[] slots = new int[16];
+    private int size;
+    private boolean sorted = true;
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+        sorted = true;
+    }
+
+    public void add(int slot, double key) {
+        ensureSorted();
+        int pos = -lowerBound(key, slot) - 1;
+        if (pos < 0) return;   // already indexed
+        grow();
+        System.arraycopy(keys, pos, keys, pos + 1, size - pos);
+        System.arraycopy(slots, pos, slots, pos + 1, size - pos);
+        keys[pos] = key;
+        slots[pos] = slot;
+        size++;
+    }
+
+    // For bulk loading: append in any order, the arrays are sorted once before the next query.
+    public void addUnsorted(int slot, double key) {
+        grow();
+        keys[size] = key;
+        slots[size] = slot;
+        size++;
+        sorted = false;
+    }
+
+    public void remove(int slot, double key) {
+        ensureSorted();
+        int pos = lowerBound(key, slot);
+        if (pos < 0) return;
+        System.arraycopy(keys, pos + 1, keys, pos, size - pos - 1);
+        System.arraycopy(slots, pos + 1, slots, pos, size - pos - 1);
+        size--;
+    }
+
+    // Slots with min <= key <= max; a null bound is open.
+    public BitSet range(Double min, Double max) {
+        ensureSorted();
+        int from = (min == null) ? 0 : firstAtLeast(min);
+        int to = (max == null) ? size : firstAbove(max);
+
+        BitSet result = new BitSet();
+        for (int i = from; i < to; i++) {
+            result.set(slots[i]);
+        }
+        return result;
+    }
+
+    public int count(Double min, Double max) {
+        ensureSorted();
+        int from = (min == null) ? 0 : firstAtLeast(min);
+        int to = (max == null) ? size : firstAbove(max);
+        return Math.max(0, to - from);
+    }
+
+    // Slots of the n highest keys, highest first.
+    public int[] top(int n) {
+        ensureSorted();
+        int count = Math.min(n, size);
+        int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = slots[size - 1 - i];
+        }
+        return result;
+    }
+
+    private int firstAtLeast(double key) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid] < key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private int firstAbove(double key) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid] <= key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // Position of (key, slot), or -(insertion point) - 1 like Arrays.binarySearch.
+    private int lowerBound(double key, int slot) {
+        int lo = 0, hi = size - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = compare(keys[mid], slots[mid], key, slot);
+            if (c < 0) lo = mid + 1;
+            else if (c > 0) hi = mid - 1;
+            else return mid;
+        }
+        return -(lo + 1);
+    }
+
+    private static int compare(double k1, int s1, double k2, int s2) {
+        int c = Double.compare(k1, k2);
+        return c != 0 ? c : Integer.compare(s1, s2);
+    }
+
+    private void grow() {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            slots = Arrays.copyOf(slots, size * 2);
+        }
+    }
+
+    private void ensureSorted() {
+        if (!sorted) {
+            sort(0, size - 1);
+            sorted = true;
+        }
+    }
+
+    // Quicksort over the two parallel arrays, ordered by key then slot.
+    private void sort(int lo, int hi) {
+        while (hi - lo > 16) {
+            int mid = (lo + hi) >>> 1;
+            if (compareAt(mid, lo) < 0) swap(mid, lo);
+            if (compareAt(hi, lo) < 0) swap(hi, lo);
+            if (compareAt(hi, mid) < 0) swap(hi, mid);
+            double pivotKey = keys[mid];
+            int pivotSlot = slots[mid];
+
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (compare(keys[i], slots[i], pivotKey, pivotSlot) < 0) i++;
+                while (compare(keys[j], slots[j], pivotKey, pivotSlot) > 0) j--;
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            // recurse into the smaller half to bound the stack depth
+            if (j - lo < hi - i) {
+                sort(lo, j);
+                lo = i;
+            } else {
+                sort(i, hi);
+                hi = j;
+            }
+        }
+        for (int i = lo + 1; i <= hi; i++) {
+            for (int j = i; j > lo && compareAt(j, j - 1) < 0; j--) {
+                swap(j, j - 1);
+            }
+        }
+    }
+
+    private int compareAt(int a, int b) {
+        return compare(keys[a], slots[a], keys[b], slots[b]);
+    }
+
+    private void swap(int a, int b) {
+        double k = keys[a];
+        keys[a] = keys[b];
+        keys[b] = k;
+        int s = slots[a];
+        slots[a] = slots[b];
+        slots[b] = s;
+    }
+}
@@ -0,0 +1,50 @@
+package bll;
+
+import java.util.Arrays;
+
+// Sorted, growable int list of slots, for index entries that usually hold few movies.
+final class SlotList {
+
+    private static final int[] NO_SLOTS = new int[0];
+
+    int[] slots = NO_SLOTS;
+    int size;
+
+    void add(int slot) {
+        // adding the same slot twice in a row is common (a trigram occurring twice in one title)
+        if (size > 0 && slots[size - 1] == slot) return;
+
+        if (size > 0 && slots[size - 1] > slot) {
+            int pos = indexOf(slot);
+            if (pos >= 0) return;
+            insertAt(-pos - 1, slot);
+            return;
+        }
+        insertAt(size, slot);
+    }
+
+    boolean remove(int slot) {
+        int pos = indexOf(slot);
+        if (pos < 0) return false;
+        System.arraycopy(slots, pos + 1, slots, pos, size - pos - 1);
+        size--;
+        return true;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    int indexOf(int slot) {
+        return Arrays.binarySearch(slots, 0, size, slot);
+    }
+
+    private void insertAt(int pos, int slot) {
+        if (size == slots.length) {
+            slots = Arrays.copyOf(slots, Math.max(4, size * 2));
+        }
+        System.arraycopy(slots, pos, slots, pos + 1, size - pos);
+        slots[pos] = slot;
+        size++;
+    }
+}
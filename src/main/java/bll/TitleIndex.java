@@ -0,0 +1,129 @@
+package bll;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Trigram index over lowercased titles, keyed by the slot MovieService gives each movie.
+// A substring query intersects the posting lists of its trigrams and then verifies each candidate,
+// because trigrams alone do not guarantee they appear next to each other in the title.
+public class TitleIndex {
+
+    private final Map<Long, SlotList> postings = new HashMap<>();
+    private final List<String> normalizedTitles = new ArrayList<>();
+
+    public static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    public void add(int slot, String title) {
+        String normalized = normalize(title);
+        while (normalizedTitles.size() <= slot) {
+            normalizedTitles.add(null);
+        }
+        normalizedTitles.set(slot, normalized);
+
+        for (int i = 0; i + 3 <= normalized.length(); i++) {
+            postings.computeIfAbsent(trigram(normalized, i), k -> new SlotList()).add(slot);
+        }
+    }
+
+    public void remove(int slot) {
+        if (slot >= normalizedTitles.size()) return;
+        String normalized = normalizedTitles.get(slot);
+        if (normalized == null) return;
+        normalizedTitles.set(slot, null);
+
+        for (int i = 0; i + 3 <= normalized.length(); i++) {
+            long key = trigram(normalized, i);
+            SlotList list = postings.get(key);
+            if (list != null && list.remove(slot) && list.size == 0) {
+                postings.remove(key);
+            }
+        }
+    }
+
+    public void clear() {
+        postings.clear();
+        normalizedTitles.clear();
+    }
+
+    // Slots whose title contains text, ignoring case.
+    public BitSet search(String text) {
+        String query = normalize(text);
+        BitSet result = new BitSet(normalizedTitles.size());
+
+        if (query.length() < 3) {
+            // too short for a trigram; the stored lowercase titles still save the per-title copy
+            for (int slot = 0; slot < normalizedTitles.size(); slot++) {
+                String title = normalizedTitles.get(slot);
+                if (title != null && title.contains(query)) {
+                    result.set(slot);
+                }
+            }
+            return result;
+        }
+
+        SlotList[] lists = postingsFor(query);
+        if (lists.length == 0) {
+            return result;
+        }
+
+        SlotList smallest = lists[0];
+        for (int i = 0; i < smallest.size; i++) {
+            int slot = smallest.slots[i];
+            if (containsInAll(lists, slot) && normalizedTitles.get(slot).contains(query)) {
+                result.set(slot);
+            }
+        }
+        return result;
+    }
+
+    // Checks a single slot against an already normalized query.
+    public boolean matches(int slot, String normalizedQuery) {
+        if (slot >= normalizedTitles.size()) return false;
+        String title = normalizedTitles.get(slot);
+        return title != null && title.contains(normalizedQuery);
+    }
+
+    // Upper bound for the number of hits, used to decide which filter runs first.
+    public int estimate(String text) {
+        String query = normalize(text);
+        if (query.length() < 3) {
+            return normalizedTitles.size();
+        }
+        SlotList[] lists = postingsFor(query);
+        return lists.length == 0 ? 0 : lists[0].size;
+    }
+
+    // Posting lists for every trigram of the query, smallest first. Empty if any trigram is unknown.
+    private SlotList[] postingsFor(String query) {
+        SlotList[] lists = new SlotList[query.length() - 2];
+        for (int i = 0; i < lists.length; i++) {
+            SlotList list = postings.get(trigram(query, i));
+            if (list == null) {
+                return new SlotList[0];
+            }
+            lists[i] = list;
+        }
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+        return lists;
+    }
+
+    private static boolean containsInAll(SlotList[] lists, int slot) {
+        for (int i = 1; i < lists.length; i++) {
+            if (lists[i] != lists[i - 1] && lists[i].indexOf(slot) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long trigram(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+}
@@ -0,0 +1,23 @@
+package bll;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+// The video containers the app knows, for the importer, the folder watcher, the file chooser and title folding.
+public final class VideoFiles {
+
+    // lowercase, without the dot
+    public static final List<String> EXTENSIONS = List.of("mp4", "mkv", "avi", "mov", "wmv", "m4v", "mpg", "mpeg", "webm");
+
+    private VideoFiles() {
+    }
+
+    public static boolean isVideo(Path file) {
+        Path name = file.getFileName();
+        if (name == null) return false;
+        String text = name.toString();
+        int dot = text.lastIndexOf('.');
+        return dot > 0 && EXTENSIONS.contains(text.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,135 @@
+package bll;
+
+import model.WarningType;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Movies that can get a warning, bucketed by the day they were last viewed. "Old" means viewed before the cutoff
+// (two years before today) or never, so all old movies are the never-viewed list plus the head of a sorted map,
+// and finding them costs about as much as the result instead of a catalog scan.
+// Only unrated and low rated movies are indexed; a rating of 6 or more never warns.
+// The cutoff is cached here and moved forward by rollForward(), so classifying a movie does not read the clock.
+public class WarningIndex {
+
+    public static final double LOW_RATING = 6;
+    public static final int YEARS_UNTIL_OLD = 2;
+
+    private final Bucket unrated = new Bucket();
+    private final Bucket lowRated = new Bucket();
+    private volatile LocalDate today;
+    private volatile long cutoffDay;
+
+    public WarningIndex(LocalDate today) {
+        this.today = today;
+        this.cutoffDay = cutoffFor(today);
+    }
+
+    // Returns whether the date changed, i.e. whether more movies may have become old.
+    public boolean rollForward(LocalDate today) {
+        if (today.equals(this.today)) return false;
+        this.cutoffDay = cutoffFor(today);
+        this.today = today;
+        return true;
+    }
+
+    // personalRating below 0 means not rated, like Movie.hasPersonalRating().
+    public WarningType classify(LocalDate lastView, double personalRating) {
+        Bucket bucket = bucketFor(personalRating);
+        if (bucket == null || !isOld(lastView)) {
+            return WarningType.NONE;
+        }
+        return bucket == unrated ? WarningType.OLD_NO_RATING : WarningType.OLD_LOW_RATING;
+    }
+
+    public void add(int slot, LocalDate lastView, double personalRating) {
+        Bucket bucket = bucketFor(personalRating);
+        if (bucket != null) bucket.add(slot, lastView);
+    }
+
+    // Takes the values the movie was indexed with, not its current ones.
+    public void remove(int slot, LocalDate lastView, double personalRating) {
+        Bucket bucket = bucketFor(personalRating);
+        if (bucket != null) bucket.remove(slot, lastView);
+    }
+
+    public void clear() {
+        unrated.clear();
+        lowRated.clear();
+    }
+
+    // Slots with the given warning, ascending.
+    public int[] slotsWith(WarningType type) {
+        return switch (type) {
+            case OLD_NO_RATING -> unrated.olderThan(cutoffDay);
+            case OLD_LOW_RATING -> lowRated.olderThan(cutoffDay);
+            case NONE -> throw new IllegalArgumentException("Movies without a warning are not indexed");
+        };
+    }
+
+    private static long cutoffFor(LocalDate today) {
+        return today.minusYears(YEARS_UNTIL_OLD).toEpochDay();
+    }
+
+    private boolean isOld(LocalDate lastView) {
+        return lastView == null || lastView.toEpochDay() < cutoffDay;
+    }
+
+    private Bucket bucketFor(double personalRating) {
+        if (personalRating < 0) return unrated;
+        if (personalRating < LOW_RATING) return lowRated;
+        return null;
+    }
+
+    private static final class Bucket {
+        private final SlotList neverViewed = new SlotList();
+        private final TreeMap<Long, SlotList> byDay = new TreeMap<>();
+
+        void add(int slot, LocalDate lastView) {
+            if (lastView == null) {
+                neverViewed.add(slot);
+            } else {
+                byDay.computeIfAbsent(lastView.toEpochDay(), k -> new SlotList()).add(slot);
+            }
+        }
+
+        void remove(int slot, LocalDate lastView) {
+            if (lastView == null) {
+                neverViewed.remove(slot);
+                return;
+            }
+            long day = lastView.toEpochDay();
+            SlotList list = byDay.get(day);
+            if (list != null && list.remove(slot) && list.size == 0) {
+                byDay.remove(day);
+            }
+        }
+
+        void clear() {
+            neverViewed.clear();
+            byDay.clear();
+        }
+
+        int[] olderThan(long cutoffDay) {
+            Map<Long, SlotList> old = byDay.headMap(cutoffDay, false);
+
+            int count = neverViewed.size;
+            for (SlotList list : old.values()) {
+                count += list.size;
+            }
+
+            int[] result = new int[count];
+            System.arraycopy(neverViewed.slots, 0, result, 0, neverViewed.size);
+            int pos = neverViewed.size;
+            for (SlotList list : old.values()) {
+                System.arraycopy(list.slots, 0, result, pos, list.size);
+                pos += list.size;
+            }
+            // back to slot order, which is the order of getMovies()
+            Arrays.sort(result);
+            return result;
+        }
+    }
+}
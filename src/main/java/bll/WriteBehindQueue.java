@@ -0,0 +1,232 @@
+package bll;
+
+import dal.MovieDAO;
+
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Collects personal rating and last view updates and writes them in batches.
+// Repeated updates of the same movie are coalesced, only the newest value is written.
+public class WriteBehindQueue {
+
+    public interface FailureListener {
+        // movieIds whose updates were given up on after the retries
+        void onWriteFailed(List<Integer> movieIds, SQLException error);
+    }
+
+    private final MovieDAO movieDAO;
+    private final Duration flushInterval;
+    private final int flushThreshold;
+    private final int maxAttempts;
+    private final FailureListener failureListener;
+
+    private final Object lock = new Object();
+    private Map<Integer, Double> ratings = new LinkedHashMap<>();
+    private Map<Integer, LocalDate> lastViews = new LinkedHashMap<>();
+    private final Map<Integer, Integer> attempts = new HashMap<>();
+    private final Set<Integer> inFlight = new LinkedHashSet<>();
+    private final Object flushLock = new Object();
+
+    private final ScheduledExecutorService scheduler;
+
+    public WriteBehindQueue(MovieDAO movieDAO, Duration flushInterval, int flushThreshold, int maxAttempts,
+                            FailureListener failureListener) {
+        this.movieDAO = movieDAO;
+        this.flushInterval = flushInterval;
+        this.flushThreshold = flushThreshold;
+        this.maxAttempts = maxAttempts;
+        this.failureListener = failureListener;
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "write-behind");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // Starts the timer that flushes every flushInterval. Until then only a full queue or shutdown() writes.
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::flushQuietly,
+                flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public void setPersonalRating(int movieId, double rating) {
+        int pending;
+        synchronized (lock) {
+            ratings.put(movieId, rating);
+            pending = pendingCount();
+        }
+        flushSoonIfFull(pending);
+    }
+
+    public void setLastView(int movieId, LocalDate lastView) {
+        int pending;
+        synchronized (lock) {
+            lastViews.put(movieId, lastView);
+            pending = pendingCount();
+        }
+        flushSoonIfFull(pending);
+    }
+
+    // True while an update for the movie has not reached the database yet.
+    public boolean hasPending(int movieId) {
+        synchronized (lock) {
+            return ratings.containsKey(movieId) || lastViews.containsKey(movieId) || inFlight.contains(movieId);
+        }
+    }
+
+    // True while any update has not reached the database yet.
+    public boolean hasPending() {
+        synchronized (lock) {
+            return pendingCount() > 0 || !inFlight.isEmpty();
+        }
+    }
+
+    // Writes everything queued so far in one transaction. Failed updates are queued again
+    // unless they ran out of attempts, in which case the failure listener is told.
+    public void flush() {
+        flush(false);
+    }
+
+    // Flushes what is left and stops the timer; called when the application closes.
+    // Returns false if some updates could not be written; the failure listener was told about them.
+    public boolean shutdown() {
+        scheduler.shutdownNow();
+        return flush(true);
+    }
+
+    // last: nothing will run after this flush, so failures are reported instead of queued again.
+    private boolean flush(boolean last) {
+        synchronized (flushLock) {
+            Map<Integer, Double> ratingBatch;
+            Map<Integer, LocalDate> lastViewBatch;
+            Set<Integer> movieIds;
+            synchronized (lock) {
+                if (ratings.isEmpty() && lastViews.isEmpty()) return true;
+                ratingBatch = ratings;
+                lastViewBatch = lastViews;
+                ratings = new LinkedHashMap<>();
+                lastViews = new LinkedHashMap<>();
+                inFlight.addAll(ratingBatch.keySet());
+                inFlight.addAll(lastViewBatch.keySet());
+                movieIds = new LinkedHashSet<>(inFlight);
+            }
+
+            List<Integer> failed = new ArrayList<>();
+            SQLException error = null;
+            try {
+                movieDAO.updateRatingsAndLastViews(ratingBatch, lastViewBatch);
+                written(movieIds);
+            } catch (SQLException e) {
+                if (!isTransient(e) && movieIds.size() > 1) {
+                    // one bad row fails the whole transaction; write movie by movie so only that one is lost
+                    error = writeSingly(movieIds, ratingBatch, lastViewBatch, last, failed);
+                } else {
+                    failed.addAll(requeueOrGiveUp(movieIds, ratingBatch, lastViewBatch, e, last));
+                    error = e;
+                }
+            }
+
+            if (!failed.isEmpty() && failureListener != null) {
+                failureListener.onWriteFailed(failed, error);
+            }
+            return failed.isEmpty();
+        }
+    }
+
+    // Returns the error of the first movie given up on, null if none was.
+    private SQLException writeSingly(Set<Integer> movieIds, Map<Integer, Double> ratingBatch,
+                                     Map<Integer, LocalDate> lastViewBatch, boolean last, List<Integer> failed) {
+        SQLException firstError = null;
+        for (Integer movieId : movieIds) {
+            // singletonMap, because a rating may be null
+            Map<Integer, Double> rating = ratingBatch.containsKey(movieId)
+                    ? Collections.singletonMap(movieId, ratingBatch.get(movieId)) : Map.of();
+            Map<Integer, LocalDate> lastView = lastViewBatch.containsKey(movieId)
+                    ? Collections.singletonMap(movieId, lastViewBatch.get(movieId)) : Map.of();
+            try {
+                movieDAO.updateRatingsAndLastViews(rating, lastView);
+                written(Set.of(movieId));
+            } catch (SQLException e) {
+                List<Integer> gaveUp = requeueOrGiveUp(Set.of(movieId), rating, lastView, e, last);
+                if (!gaveUp.isEmpty() && firstError == null) firstError = e;
+                failed.addAll(gaveUp);
+            }
+        }
+        return firstError;
+    }
+
+    private void written(Set<Integer> movieIds) {
+        synchronized (lock) {
+            attempts.keySet().removeAll(movieIds);
+            inFlight.removeAll(movieIds);
+        }
+    }
+
+    // Returns the movies given up on.
+    private List<Integer> requeueOrGiveUp(Set<Integer> movieIds, Map<Integer, Double> ratingBatch,
+                                          Map<Integer, LocalDate> lastViewBatch, SQLException e, boolean last) {
+        List<Integer> failed = new ArrayList<>();
+
+        synchronized (lock) {
+            boolean retry = !last && isTransient(e);
+            for (Integer movieId : movieIds) {
+                int tries = attempts.merge(movieId, 1, Integer::sum);
+                if (retry && tries < maxAttempts) {
+                    // newer updates queued during the flush win over the failed ones
+                    if (ratingBatch.containsKey(movieId)) ratings.putIfAbsent(movieId, ratingBatch.get(movieId));
+                    if (lastViewBatch.containsKey(movieId)) lastViews.putIfAbsent(movieId, lastViewBatch.get(movieId));
+                } else {
+                    attempts.remove(movieId);
+                    failed.add(movieId);
+                }
+            }
+            inFlight.removeAll(movieIds);
+        }
+        return failed;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            e.printStackTrace();   // keep the timer alive
+        }
+    }
+
+    private void flushSoonIfFull(int pending) {
+        if (pending >= flushThreshold && !scheduler.isShutdown()) {
+            scheduler.execute(this::flushQuietly);
+        }
+    }
+
+    private int pendingCount() {
+        return ratings.size() + lastViews.size();
+    }
+
+    // Connection problems, timeouts and deadlocks are worth another try, constraint violations are not.
+    private static boolean isTransient(SQLException e) {
+        if (e instanceof SQLTransientException || e instanceof SQLRecoverableException) {
+            return true;
+        }
+        String state = e.getSQLState();
+        if (state != null && (state.startsWith("08") || state.startsWith("40") || state.equals("HYT00"))) {
+            return true;
+        }
+        return e.getErrorCode() == 1205;   // SQL Server deadlock victim
+    }
+}
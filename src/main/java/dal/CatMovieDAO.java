@@ -1,13 +1,29 @@
 package dal;
 
-import model.Category;
+import metrics.Metrics;
+import metrics.Timer;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class CatMovieDAO {
-    private final ConnectionManager cm = new ConnectionManager();
+    private static final Timer ADD_LINK = Metrics.timer("CatMovieDAO.addCategoryToMovie");
+    private static final Timer REMOVE_LINK = Metrics.timer("CatMovieDAO.removeCategoryFromMovie");
+    private static final Timer FOR_EACH_LINK = Metrics.timer("CatMovieDAO.forEachLink");
+    private static final Timer FOR_EACH_LINK_OF = Metrics.timer("CatMovieDAO.forEachLinkOf");
+    private static final Timer GET_CHANGES = Metrics.timer("CatMovieDAO.getChangesSince");
+
+    private final ConnectionManager cm;
+
+    public CatMovieDAO() {
+        this(ConnectionManager.getInstance());
+    }
+
+    public CatMovieDAO(ConnectionManager cm) {
+        this.cm = cm;
+    }
 
 
     public void addCategoryToMovie(int movieId, int categoryId) throws SQLException {
@@ -16,12 +32,49 @@ public class CatMovieDAO {
             VALUES (?, ?)
             """;
 
-        try (Connection conn = cm.getConnection();
+        try (Timer.Sample sample = ADD_LINK.start();
+             Connection conn = cm.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setInt(1, movieId);
             ps.setInt(2, categoryId);
-            ps.executeUpdate();
+            sample.success(ps.executeUpdate());
+        }
+    }
+
+    // Shared with MovieDAO so a movie and its links can be inserted in the same transaction.
+    static void insertLinks(Connection conn, int movieId, List<Integer> categoryIds) throws SQLException {
+        String sql = """
+            INSERT INTO dbo.CatMovie (MovieId, CategoryId)
+            VALUES (?, ?)
+            """;
+
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int categoryId : categoryIds) {
+                ps.setInt(1, movieId);
+                ps.setInt(2, categoryId);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    // Links every movie to every category, as one JDBC batch on the caller's transaction.
+    static void insertLinks(Connection conn, List<Integer> movieIds, List<Integer> categoryIds) throws SQLException {
+        String sql = """
+            INSERT INTO dbo.CatMovie (MovieId, CategoryId)
+            VALUES (?, ?)
+            """;
+
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int movieId : movieIds) {
+                for (int categoryId : categoryIds) {
+                    ps.setInt(1, movieId);
+                    ps.setInt(2, categoryId);
+                    ps.addBatch();
+                }
+            }
+            ps.executeBatch();
         }
     }
 
@@ -31,50 +84,113 @@ public class CatMovieDAO {
             WHERE MovieId = ? AND CategoryId = ?
             """;
 
-        try (Connection conn = cm.getConnection();
+        try (Timer.Sample sample = REMOVE_LINK.start();
+             Connection conn = cm.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setInt(1, movieId);
             ps.setInt(2, categoryId);
-            ps.executeUpdate();
+            sample.success(ps.executeUpdate());
         }
     }
 
-    public void deleteLinksForMovie(int movieId) throws SQLException {
-        String sql = "DELETE FROM dbo.CatMovie WHERE MovieId = ?";
+    // Streams every MovieId -> CategoryId link in one query, each movie's categories ordered by name.
+    public void forEachLink(LinkHandler handler) throws SQLException {
+        String sql = """
+            SELECT cm.MovieId, cm.CategoryId
+            FROM dbo.CatMovie cm
+            JOIN dbo.Category c ON c.id = cm.CategoryId
+            ORDER BY cm.MovieId, c.name
+            """;
 
-        try (Connection conn = cm.getConnection();
+        try (Timer.Sample sample = FOR_EACH_LINK.start();
+             Connection conn = cm.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
-            ps.setInt(1, movieId);
-            ps.executeUpdate();
+            ps.setFetchSize(1000);
+
+            long rows = 0;
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    handler.onLink(rs.getInt(1), rs.getInt(2));
+                    rows++;
+                }
+            }
+            sample.success(rows);
+        }
+    }
+
+    // Like forEachLink, but only for the given movies, e.g. one page of MovieDAO.search results.
+    // Sent in chunks to stay below the driver's limit of 2100 parameters.
+    public void forEachLinkOf(List<Integer> movieIds, LinkHandler handler) throws SQLException {
+        if (movieIds.isEmpty()) return;
+
+        try (Timer.Sample sample = FOR_EACH_LINK_OF.start();
+             Connection conn = cm.getConnection()) {
+
+            long rows = 0;
+            for (int from = 0; from < movieIds.size(); from += 1000) {
+                List<Integer> chunk = movieIds.subList(from, Math.min(from + 1000, movieIds.size()));
+                String sql = """
+                    SELECT cm.MovieId, cm.CategoryId
+                    FROM dbo.CatMovie cm
+                    JOIN dbo.Category c ON c.id = cm.CategoryId
+                    WHERE cm.MovieId IN (%s)
+                    ORDER BY cm.MovieId, c.name
+                    """.formatted(String.join(", ", Collections.nCopies(chunk.size(), "?")));
+
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        ps.setInt(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            handler.onLink(rs.getInt(1), rs.getInt(2));
+                            rows++;
+                        }
+                    }
+                }
+            }
+            sample.success(rows);
         }
     }
 
+    public interface LinkHandler {
+        void onLink(int movieId, int categoryId);
+    }
 
-    public List<Category> getCategoriesForMovie(int movieId) throws SQLException {
+    // Links added or removed since the given change tracking version.
+    // A link has no columns besides its key, so an update only shows up as delete + insert.
+    public Delta<Link, Link> getChangesSince(long version) throws SQLException {
         String sql = """
-            SELECT c.id, c.name
-            FROM dbo.Category c
-            JOIN dbo.CatMovie cm ON cm.CategoryId = c.id
-            WHERE cm.MovieId = ?
-            ORDER BY c.name
+            SELECT ct.MovieId, ct.CategoryId, ct.SYS_CHANGE_OPERATION AS operation
+            FROM CHANGETABLE(CHANGES dbo.CatMovie, ?) AS ct
             """;
 
-        List<Category> result = new ArrayList<>();
+        List<Link> added = new ArrayList<>();
+        List<Link> deleted = new ArrayList<>();
 
-        try (Connection conn = cm.getConnection();
+        try (Timer.Sample sample = GET_CHANGES.start();
+             Connection conn = cm.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
-            ps.setInt(1, movieId);
+            ps.setLong(1, version);
 
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
-                    result.add(new Category(rs.getInt("id"), rs.getString("name")));
+                    Link link = new Link(rs.getInt("MovieId"), rs.getInt("CategoryId"));
+                    if ("D".equals(rs.getString("operation"))) {
+                        deleted.add(link);
+                    } else {
+                        added.add(link);
+                    }
                 }
             }
+            sample.success(added.size() + deleted.size());
         }
+        return new Delta<>(added, deleted);
+    }
 
-        return result;
+    public record Link(int movieId, int categoryId) {
     }
 }
@@ -0,0 +1,194 @@
+package dal;
+
+import model.Category;
+import model.CategoryRegistry;
+import model.Movie;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+// The whole catalog in one local binary file, so the app can show it before the database answers.
+// Layout: magic, format, change tracking version, categories, movies with their category ids, CRC32 of all before it.
+// Strings are an int byte length (-1 for null) followed by UTF-8.
+public final class CatalogSnapshot {
+
+    private static final int MAGIC = 0x504D4353;   // "PMCS"
+    private static final int FORMAT = 1;
+    private static final int NO_DATE = Integer.MIN_VALUE;
+
+    private final long syncVersion;
+    private final List<Category> categories;
+    private final List<Movie> movies;
+
+    private CatalogSnapshot(long syncVersion, List<Category> categories, List<Movie> movies) {
+        this.syncVersion = syncVersion;
+        this.categories = categories;
+        this.movies = movies;
+    }
+
+    // The change tracking version the snapshot was consistent with, -1 if change tracking was off.
+    public long syncVersion() {
+        return syncVersion;
+    }
+
+    public List<Category> categories() {
+        return categories;
+    }
+
+    // With their categories attached, resolved through the registry given to read().
+    public List<Movie> movies() {
+        return movies;
+    }
+
+    // Encodes the catalog in memory; the caller decides when to write it, typically after releasing its lock.
+    public static byte[] encode(long syncVersion, List<Category> categories, List<Movie> movies) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + movies.size() * 96);
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT);
+        out.writeLong(syncVersion);
+
+        out.writeInt(categories.size());
+        for (Category category : categories) {
+            out.writeInt(category.getId());
+            writeString(out, category.getName());
+        }
+
+        out.writeInt(movies.size());
+        for (Movie movie : movies) {
+            out.writeInt(movie.getId());
+            writeString(out, movie.getTitle());
+            out.writeDouble(movie.getImdbRating());
+            out.writeDouble(movie.getPersonalRating());
+            LocalDate lastView = movie.getLastView();
+            out.writeInt(lastView == null ? NO_DATE : (int) lastView.toEpochDay());
+            writeString(out, movie.getFilePath());
+
+            List<Category> movieCategories = movie.getCategories();
+            out.writeInt(movieCategories.size());
+            for (Category category : movieCategories) {
+                out.writeInt(category.getId());
+            }
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeLong(crc.getValue());
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    // Replaces the file atomically, a crash while writing leaves the previous snapshot in place.
+    public static void write(Path file, byte[] encoded) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path temp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, encoded);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Throws IOException for a missing, damaged or outdated file; the caller then loads from the database.
+    // Read into the heap rather than mapped: Windows cannot replace a file while a mapped view of it is alive,
+    // and decode copies everything out anyway.
+    public static CatalogSnapshot read(Path file, CategoryRegistry registry) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        int size = bytes.length;
+        if (size < 24) {
+            throw new IOException("Not a catalog snapshot: " + file);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, size - 8);
+        if (crc.getValue() != buffer.getLong(size - 8)) {
+            throw new IOException("Catalog snapshot is damaged: " + file);
+        }
+
+        try {
+            return decode(buffer, registry);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Catalog snapshot is damaged: " + file, e);
+        }
+    }
+
+    private static CatalogSnapshot decode(ByteBuffer in, CategoryRegistry registry) throws IOException {
+        if (in.getInt() != MAGIC) {
+            throw new IOException("Not a catalog snapshot");
+        }
+        int format = in.getInt();
+        if (format != FORMAT) {
+            throw new IOException("Unsupported catalog snapshot format " + format);
+        }
+        long syncVersion = in.getLong();
+
+        int categoryCount = in.getInt();
+        List<Category> categories = new ArrayList<>(categoryCount);
+        Map<Integer, Category> byId = new HashMap<>();
+        for (int i = 0; i < categoryCount; i++) {
+            Category category = registry.resolve(in.getInt(), readString(in));
+            categories.add(category);
+            byId.put(category.getId(), category);
+        }
+
+        int movieCount = in.getInt();
+        List<Movie> movies = new ArrayList<>(movieCount);
+        for (int i = 0; i < movieCount; i++) {
+            int id = in.getInt();
+            String title = readString(in);
+            double imdbRating = in.getDouble();
+            double personalRating = in.getDouble();
+            int lastViewDay = in.getInt();
+            String filePath = readString(in);
+
+            Movie movie = new Movie(id, title, imdbRating, filePath);
+            movie.setPersonalRating(personalRating);
+            movie.setLastView(lastViewDay == NO_DATE ? null : LocalDate.ofEpochDay(lastViewDay));
+
+            int links = in.getInt();
+            for (int j = 0; j < links; j++) {
+                Category category = byId.get(in.getInt());
+                if (category != null) {
+                    movie.addCategory(category);
+                }
+            }
+            movies.add(movie);
+        }
+        return new CatalogSnapshot(syncVersion, categories, movies);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) return null;
+        byte[] utf8 = new byte[length];
+        in.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+}
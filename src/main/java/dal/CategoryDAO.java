@@ -1,6 +1,9 @@
 package dal;
 
+import metrics.Metrics;
+import metrics.Timer;
 import model.Category;
+import model.CategoryRegistry;
 
 import java.sql.*;
 import java.util.ArrayList;
@@ -8,7 +11,25 @@ import java.util.List;
 
 public class CategoryDAO {
 
-    private final ConnectionManager cm = new ConnectionManager();
+    private static final Timer CREATE = Metrics.timer("CategoryDAO.create");
+    private static final Timer GET_ALL = Metrics.timer("CategoryDAO.getAll");
+    private static final Timer GET_BY_ID = Metrics.timer("CategoryDAO.getById");
+    private static final Timer RENAME = Metrics.timer("CategoryDAO.rename");
+    private static final Timer DELETE_BY_ID = Metrics.timer("CategoryDAO.deleteById");
+    private static final Timer GET_CHANGES = Metrics.timer("CategoryDAO.getChangesSince");
+
+    private final ConnectionManager cm;
+    private final CategoryRegistry registry;
+
+    public CategoryDAO() {
+        this(ConnectionManager.getInstance(), new CategoryRegistry());
+    }
+
+    // Categories are resolved through the registry, so callers sharing it get the same objects.
+    public CategoryDAO(ConnectionManager cm, CategoryRegistry registry) {
+        this.cm = cm;
+        this.registry = registry;
+    }
 
     // Create category and return generated id
     public int create(String name) throws SQLException {
@@ -18,7 +39,8 @@ public class CategoryDAO {
         VALUES (?)
         """;
 
-        try (Connection conn = cm.getConnection();
+        try (Timer.Sample sample = CREATE.start();
+             Connection conn = cm.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
             ps.setString(1, name);
@@ -30,6 +52,7 @@ public class CategoryDAO {
 
             try (ResultSet keys = ps.getGeneratedKeys()) {
                 if (keys.next()) {
+                    sample.success(1);
                     return keys.getInt(1);
                 }
             }
@@ -41,6 +64,7 @@ public class CategoryDAO {
 
 
 
+    // The rows as stored, not resolved through the registry; the caller resolves them and applies renames.
     public List<Category> getAll() throws SQLException {
         String sql = """
             SELECT id, name
@@ -50,13 +74,15 @@ public class CategoryDAO {
 
         List<Category> categories = new ArrayList<>();
 
-        try (Connection conn = cm.getConnection();
+        try (Timer.Sample sample = GET_ALL.start();
+             Connection conn = cm.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
 
             while (rs.next()) {
-                categories.add(mapCategory(rs));
+                categories.add(mapRow(rs));
             }
+            sample.success(categories.size());
         }
         return categories;
     }
@@ -68,41 +94,38 @@ public class CategoryDAO {
             WHERE id = ?
             """;
 
-        try (Connection conn = cm.getConnection();
+        try (Timer.Sample sample = GET_BY_ID.start();
+             Connection conn = cm.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setInt(1, categoryId);
 
             try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) return mapCategory(rs);
-                return null;
+                Category category = rs.next() ? mapCategory(rs) : null;
+                sample.success(category == null ? 0 : 1);
+                return category;
             }
         }
     }
 
-    public List<Category> searchByName(String namePart) throws SQLException {
+    public boolean rename(int categoryId, String name) throws SQLException {
         String sql = """
-            SELECT id, name
-            FROM dbo.Category
-            WHERE name LIKE ?
-            ORDER BY name
+            UPDATE dbo.Category
+            SET name = ?
+            WHERE id = ?
             """;
 
-        List<Category> categories = new ArrayList<>();
-
-        try (Connection conn = cm.getConnection();
+        try (Timer.Sample sample = RENAME.start();
+             Connection conn = cm.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
-            ps.setString(1, "%" + namePart + "%");
+            ps.setString(1, name);
+            ps.setInt(2, categoryId);
 
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    categories.add(mapCategory(rs));
-                }
-            }
+            int rows = ps.executeUpdate();
+            sample.success(rows);
+            return rows == 1;
         }
-
-        return categories;
     }
 
     public boolean deleteById(int categoryId) throws SQLException {
@@ -110,7 +133,8 @@ public class CategoryDAO {
         String deleteLinks = "DELETE FROM dbo.CatMovie WHERE CategoryId = ?";
         String deleteCategory = "DELETE FROM dbo.Category WHERE id = ?";
 
-        try (Connection conn = cm.getConnection()) {
+        try (Timer.Sample sample = DELETE_BY_ID.start();
+             Connection conn = cm.getConnection()) {
             conn.setAutoCommit(false);
 
             try (PreparedStatement ps1 = conn.prepareStatement(deleteLinks);
@@ -123,6 +147,7 @@ public class CategoryDAO {
                 int rows = ps2.executeUpdate();
 
                 conn.commit();
+                sample.success(rows);
                 return rows == 1;
 
             } catch (SQLException e) {
@@ -134,10 +159,46 @@ public class CategoryDAO {
         }
     }
 
+    // Categories inserted, updated or deleted since the given change tracking version.
+    // Like getAll(), changed rows are not resolved, so a sync that is thrown away renames nothing.
+    public Delta<Category, Integer> getChangesSince(long version) throws SQLException {
+        String sql = """
+            SELECT ct.id AS changedId, ct.SYS_CHANGE_OPERATION AS operation, c.id, c.name
+            FROM CHANGETABLE(CHANGES dbo.Category, ?) AS ct
+            LEFT JOIN dbo.Category c ON c.id = ct.id
+            """;
+
+        List<Category> changed = new ArrayList<>();
+        List<Integer> deleted = new ArrayList<>();
+
+        try (Timer.Sample sample = GET_CHANGES.start();
+             Connection conn = cm.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setLong(1, version);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if ("D".equals(rs.getString("operation")) || rs.getObject("id") == null) {
+                        deleted.add(rs.getInt("changedId"));
+                    } else {
+                        changed.add(mapRow(rs));
+                    }
+                }
+            }
+            sample.success(changed.size() + deleted.size());
+        }
+        return new Delta<>(changed, deleted);
+    }
+
+    private static Category mapRow(ResultSet rs) throws SQLException {
+        return new Category(rs.getInt("id"), rs.getString("name"));
+    }
+
     private Category mapCategory(ResultSet rs) throws SQLException {
         int id = rs.getInt("id");
         String name = rs.getString("name");
-        return new Category(id, name);
+        return registry.resolve(id, name);
     }
 
 }
@@ -0,0 +1,64 @@
+package dal;
+
+import metrics.Metrics;
+import metrics.Timer;
+
+import java.sql.*;
+
+// Versions of SQL Server change tracking (see db/change_tracking.sql).
+public class ChangeTrackingDAO {
+
+    private static final Timer CURRENT_VERSION = Metrics.timer("ChangeTrackingDAO.getCurrentVersion");
+    private static final Timer MIN_VALID_VERSION = Metrics.timer("ChangeTrackingDAO.getMinValidVersion");
+
+    private final ConnectionManager cm;
+
+    public ChangeTrackingDAO() {
+        this(ConnectionManager.getInstance());
+    }
+
+    public ChangeTrackingDAO(ConnectionManager cm) {
+        this.cm = cm;
+    }
+
+    // Fails when change tracking is not enabled for the database.
+    public long getCurrentVersion() throws SQLException {
+        String sql = "SELECT CHANGE_TRACKING_CURRENT_VERSION()";
+
+        try (Timer.Sample sample = CURRENT_VERSION.start();
+             Connection conn = cm.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+
+            rs.next();
+            long version = rs.getLong(1);
+            if (rs.wasNull()) {
+                throw new SQLException("Change tracking is not enabled for this database.");
+            }
+            sample.success(1);
+            return version;
+        }
+    }
+
+    // Changes older than this have been cleaned up; a client behind it has to reload everything.
+    public long getMinValidVersion(String table) throws SQLException {
+        String sql = "SELECT CHANGE_TRACKING_MIN_VALID_VERSION(OBJECT_ID(?))";
+
+        try (Timer.Sample sample = MIN_VALID_VERSION.start();
+             Connection conn = cm.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setString(1, table);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                long version = rs.getLong(1);
+                if (rs.wasNull()) {
+                    throw new SQLException("Change tracking is not enabled for " + table + ".");
+                }
+                sample.success(1);
+                return version;
+            }
+        }
+    }
+}
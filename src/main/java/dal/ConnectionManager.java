@@ -1,20 +1,349 @@
 package dal;
 
 import com.microsoft.sqlserver.jdbc.SQLServerDataSource;
-import com.microsoft.sqlserver.jdbc.SQLServerException;
-import java.sql.Connection;
+import metrics.Metrics;
+import metrics.Timer;
 
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
+// Bounded connection pool shared by all DAOs.
+// Connections handed out are proxies: close() gives the physical connection back to the pool.
+// Statements and metadata are proxied too, so neither they nor unwrap() hand out the physical connection.
 public class ConnectionManager {
-    public Connection getConnection() throws SQLServerException {
-        SQLServerDataSource ds;
-        ds = new SQLServerDataSource();
+
+    // time from asking for a connection to having one: waiting for a permit, validation, opening
+    private static final Timer ACQUIRE = Metrics.timer("ConnectionManager.getConnection");
+
+    private final DataSource dataSource;
+    private final PoolConfig config;
+
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final ScheduledExecutorService evictor;
+    private volatile boolean shutdown;
+
+    // Created on first use: it is started and connects right away, which pools built for tests and benchmarks must not trigger.
+    private static final class DefaultPool {
+        static final ConnectionManager INSTANCE = createDefault();
+    }
+
+    public static ConnectionManager getInstance() {
+        return DefaultPool.INSTANCE;
+    }
+
+    public ConnectionManager(DataSource dataSource, PoolConfig config) {
+        this.dataSource = dataSource;
+        this.config = config;
+        this.permits = new Semaphore(config.maxSize(), true);
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // Starts the evictor. Its first run opens minSize connections right away, later runs replace the ones that were closed.
+    // Until then connections are only opened on demand or by warmUp().
+    public void start() {
+        long period = Math.max(1000, config.idleTimeout().toMillis() / 2);
+        evictor.scheduleWithFixedDelay(this::maintain, 0, period, TimeUnit.MILLISECONDS);
+    }
+
+    private static ConnectionManager createDefault() {
+        PoolConfig config = PoolConfig.fromSystemProperties();
+
+        SQLServerDataSource ds = new SQLServerDataSource();
         ds.setDatabaseName("PrivateMovieCollection1");
         ds.setUser("CS2025b_e_5");
         ds.setPassword("CS2025bE5#23");
         ds.setServerName("EASV-DB4");
         ds.setPortNumber(1433);
         ds.setTrustServerCertificate(true);
-        return (Connection) ds.getConnection();
+
+        // driver side prepared statement cache, kept per physical connection
+        ds.setDisableStatementPooling(false);
+        ds.setStatementPoolingCacheSize(config.statementCacheSize());
+
+        ConnectionManager cm = new ConnectionManager(ds, config);
+        cm.start();
+        Metrics.gauge("pool.active", cm::getActiveCount);
+        Metrics.gauge("pool.idle", cm::getIdleCount);
+        return cm;
+    }
+
+    public Connection getConnection() throws SQLException {
+        try (Timer.Sample sample = ACQUIRE.start()) {
+            Connection conn = acquire();
+            sample.success();
+            return conn;
+        }
+    }
+
+    private Connection acquire() throws SQLException {
+        if (shutdown) {
+            throw new SQLException("Connection pool has been shut down.");
+        }
+
+        try {
+            if (!permits.tryAcquire(config.acquireTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new SQLTimeoutException("Timed out after " + config.acquireTimeout().toMillis()
+                        + " ms waiting for a database connection (max pool size " + config.maxSize() + ").");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection.", e);
+        }
+
+        try {
+            PooledConnection pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (validate(pooled)) {
+                    return pooled.borrow();
+                }
+                closeQuietly(pooled.physical);
+            }
+            return new PooledConnection(dataSource.getConnection()).borrow();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    // Opens connections until the pool holds minSize, so the first queries skip the login handshake.
+    // A started pool does this in the background as well; call it to wait for it.
+    public synchronized void warmUp() throws SQLException {
+        while (!shutdown && idle.size() + getActiveCount() < config.minSize()) {
+            PooledConnection pc = new PooledConnection(dataSource.getConnection());
+            idle.offerLast(pc);
+            if (shutdown && idle.remove(pc)) {
+                closeQuietly(pc.physical);   // shut down meanwhile, nobody will close it
+            }
+        }
+    }
+
+    public void shutdown() {
+        shutdown = true;
+        evictor.shutdownNow();
+        PooledConnection pc;
+        while ((pc = idle.pollFirst()) != null) {
+            closeQuietly(pc.physical);
+        }
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getActiveCount() {
+        return config.maxSize() - permits.availablePermits();
+    }
+
+    private boolean validate(PooledConnection pc) {
+        // connections used very recently are trusted, the rest get a round trip
+        long idleNanos = System.nanoTime() - pc.lastUsed;
+        if (idleNanos < config.validationInterval().toNanos()) {
+            return true;
+        }
+        try {
+            return pc.physical.isValid(config.validationTimeoutSeconds());
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void release(PooledConnection pc) {
+        boolean reusable = !shutdown;
+        try {
+            if (reusable && pc.physical.isClosed()) {
+                reusable = false;
+            }
+            if (reusable && !pc.physical.getAutoCommit()) {
+                // a DAO left a transaction open; never leak it to the next borrower
+                pc.physical.rollback();
+                pc.physical.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            reusable = false;
+        }
+
+        if (reusable) {
+            pc.lastUsed = System.nanoTime();
+            idle.offerFirst(pc);
+        } else {
+            closeQuietly(pc.physical);
+        }
+        permits.release();
+    }
+
+    private void maintain() {
+        evictIdle();
+        try {
+            warmUp();
+        } catch (SQLException e) {
+            // the pool still opens connections on demand; the next run tries again
+            System.err.println("Could not open pooled connections: " + e.getMessage());
+        }
+    }
+
+    private void evictIdle() {
+        long now = System.nanoTime();
+        long timeout = config.idleTimeout().toNanos();
+
+        // oldest connections sit at the tail, so walk from there
+        Iterator<PooledConnection> it = idle.descendingIterator();
+        while (it.hasNext() && idle.size() > config.minSize()) {
+            PooledConnection pc = it.next();
+            if (now - pc.lastUsed > timeout && idle.remove(pc)) {
+                closeQuietly(pc.physical);
+            }
+        }
+    }
+
+    // The pool's proxies only unwrap to themselves; the physical connection must not leave the pool.
+    private static Object unwrap(Object proxy, Class<?> iface) throws SQLException {
+        if (iface.isInstance(proxy)) {
+            return proxy;
+        }
+        throw new SQLException("A pooled connection cannot be unwrapped to " + iface.getName());
+    }
+
+    // Statements and metadata would return the physical connection from getConnection().
+    private static Object wrapChild(Connection connection, Object target, Class<?> type) {
+        return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getConnection" -> connection;
+                    case "unwrap" -> unwrap(proxy, (Class<?>) args[0]);
+                    case "isWrapperFor" -> ((Class<?>) args[0]).isInstance(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> invokeOn(target, method, args);
+                });
+    }
+
+    private static Object invokeOn(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void closeQuietly(Connection conn) {
+        try {
+            conn.close();
+        } catch (SQLException ignored) {
+            // connection is being thrown away anyway
+        }
+    }
+
+    private final class PooledConnection {
+        private final Connection physical;
+        private volatile long lastUsed = System.nanoTime();
+
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        private Connection borrow() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new Handle(this));
+        }
+    }
+
+    // One handle per borrow, so a stale reference cannot return the connection twice.
+    private final class Handle implements InvocationHandler {
+        private PooledConnection pooled;
+
+        private Handle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public synchronized Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (pooled != null) {
+                        PooledConnection pc = pooled;
+                        pooled = null;
+                        release(pc);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return pooled == null || pooled.physical.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "PooledConnection[" + (pooled == null ? "closed" : pooled.physical) + "]";
+                }
+                case "unwrap" -> {
+                    return unwrap(proxy, (Class<?>) args[0]);
+                }
+                case "isWrapperFor" -> {
+                    return ((Class<?>) args[0]).isInstance(proxy);
+                }
+                default -> {
+                    if (pooled == null) {
+                        throw new SQLException("Connection is closed.");
+                    }
+                    Object result = invokeOn(pooled.physical, method, args);
+                    if (result instanceof Statement || result instanceof DatabaseMetaData) {
+                        return wrapChild((Connection) proxy, result, method.getReturnType());
+                    }
+                    return result;
+                }
+            }
+        }
+    }
+
+    public record PoolConfig(int minSize,
+                             int maxSize,
+                             Duration idleTimeout,
+                             Duration acquireTimeout,
+                             Duration validationInterval,
+                             int validationTimeoutSeconds,
+                             int statementCacheSize) {
+
+        public PoolConfig {
+            if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+                throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+            }
+        }
+
+        // Defaults can be overridden with -Dpmc.pool.<name>=<value>
+        public static PoolConfig fromSystemProperties() {
+            return new PoolConfig(
+                    Integer.getInteger("pmc.pool.minSize", 2),
+                    Integer.getInteger("pmc.pool.maxSize", 10),
+                    Duration.ofMillis(Long.getLong("pmc.pool.idleTimeoutMs", 300_000)),
+                    Duration.ofMillis(Long.getLong("pmc.pool.acquireTimeoutMs", 10_000)),
+                    Duration.ofMillis(Long.getLong("pmc.pool.validationIntervalMs", 5_000)),
+                    Integer.getInteger("pmc.pool.validationTimeoutSec", 2),
+                    Integer.getInteger("pmc.pool.statementCacheSize", 64));
+        }
     }
 }
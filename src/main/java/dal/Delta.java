@@ -0,0 +1,11 @@
+package dal;
+
+import java.util.List;
+
+// Rows inserted or updated since a change tracking version, plus the keys of deleted rows.
+public record Delta<T, K>(List<T> changed, List<K> deleted) {
+
+    public boolean isEmpty() {
+        return changed.isEmpty() && deleted.isEmpty();
+    }
+}
@@ -1,54 +1,218 @@
 package dal;
 
+import metrics.Metrics;
+import metrics.Timer;
 import model.Movie;
 
 import java.math.BigDecimal;
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class MovieDAO {
 
-    private final ConnectionManager cm = new ConnectionManager();
+    private static final Timer CREATE = Metrics.timer("MovieDAO.create");
+    private static final Timer CREATE_BATCH = Metrics.timer("MovieDAO.createBatch");
+    private static final Timer GET_FILE_PATHS = Metrics.timer("MovieDAO.getFilePaths");
+    private static final Timer GET_ALL = Metrics.timer("MovieDAO.getAll");
+    private static final Timer SEARCH_BY_TITLE = Metrics.timer("MovieDAO.searchByTitle");
+    private static final Timer SEARCH = Metrics.timer("MovieDAO.search");
+    private static final Timer COUNT = Metrics.timer("MovieDAO.count");
+    private static final Timer STREAM_ALL = Metrics.timer("MovieDAO.streamAll");
+    private static final Timer STREAM_BY_TITLE = Metrics.timer("MovieDAO.streamByTitle");
+    private static final Timer FOR_EACH = Metrics.timer("MovieDAO.forEachMovie");
+    private static final Timer PAGE_BY_ID = Metrics.timer("MovieDAO.getPageById");
+    private static final Timer PAGE_BY_TITLE = Metrics.timer("MovieDAO.getPageByTitle");
+    private static final Timer UPDATE_BATCH = Metrics.timer("MovieDAO.updateRatingsAndLastViews");
+    private static final Timer DELETE_BY_ID = Metrics.timer("MovieDAO.deleteById");
+    private static final Timer GET_CHANGES = Metrics.timer("MovieDAO.getChangesSince");
+
+    private final ConnectionManager cm;
+
+    public MovieDAO() {
+        this(ConnectionManager.getInstance());
+    }
+
+    public MovieDAO(ConnectionManager cm) {
+        this.cm = cm;
+    }
 
 
     public int create(String title,
                       double imdbRating,
                       Double personalRating,
                       String filePath) throws SQLException {
+        return create(title, imdbRating, personalRating, filePath, List.of());
+    }
+
+    // Inserts the movie and its category links atomically; the links go out as one JDBC batch.
+    public int create(String title,
+                      double imdbRating,
+                      Double personalRating,
+                      String filePath,
+                      List<Integer> categoryIds) throws SQLException {
 
         String sql = """
         INSERT INTO dbo.Movie (title, imdbRating, personalRating, filePath)
         VALUES (?, ?, ?, ?)
         """;
 
-        try (Connection conn = cm.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        try (Timer.Sample sample = CREATE.start();
+             Connection conn = cm.getConnection()) {
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
-            ps.setString(1, title);
-            ps.setDouble(2, imdbRating);
+                ps.setString(1, title);
+                ps.setDouble(2, imdbRating);
 
-            if (personalRating == null) {
-                ps.setNull(3, Types.DECIMAL);
-            } else {
-                ps.setBigDecimal(3, BigDecimal.valueOf(personalRating));
+                if (personalRating == null) {
+                    ps.setNull(3, Types.DECIMAL);
+                } else {
+                    ps.setBigDecimal(3, BigDecimal.valueOf(personalRating));
+                }
+
+                ps.setString(4, filePath);
+
+                int rows = ps.executeUpdate();
+                if (rows != 1) {
+                    throw new SQLException("Insert failed, rows affected: " + rows);
+                }
+
+                int movieId;
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    if (!keys.next()) {
+                        throw new SQLException("No generated key returned for Movie insert.");
+                    }
+                    movieId = keys.getInt(1);
+                }
+
+                if (!categoryIds.isEmpty()) {
+                    CatMovieDAO.insertLinks(conn, movieId, categoryIds);
+                }
+
+                conn.commit();
+                sample.success(1);
+                return movieId;
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
+        }
+    }
+
+
+    // Most rows createBatch takes: 3 parameters each stays well below SQL Server's limit of 2100 per statement.
+    public static final int MAX_BATCH_ROWS = 500;
 
-            ps.setString(4, filePath);
+    // Inserts all movies with one multi-row INSERT and links every one of them to the given categories,
+    // in a single transaction. The movies come back with their ids, not rated and without categories.
+    public List<Movie> createBatch(List<NewMovie> newMovies, List<Integer> categoryIds) throws SQLException {
+        if (newMovies.isEmpty()) return List.of();
+        if (newMovies.size() > MAX_BATCH_ROWS) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_ROWS + " movies per batch, got " + newMovies.size());
+        }
 
-            int rows = ps.executeUpdate();
-            if (rows != 1) {
-                throw new SQLException("Insert failed, rows affected: " + rows);
+        // OUTPUT does not promise VALUES order, so the rows are matched back by their file path
+        String sql = """
+            INSERT INTO dbo.Movie (title, imdbRating, personalRating, filePath)
+            OUTPUT INSERTED.id, INSERTED.filePath
+            VALUES
+            """ + String.join(",\n", Collections.nCopies(newMovies.size(), "(?, ?, -1, ?)"));
+
+        Map<String, NewMovie> byPath = new HashMap<>();
+        for (NewMovie newMovie : newMovies) {
+            if (byPath.put(newMovie.filePath(), newMovie) != null) {
+                throw new IllegalArgumentException("Duplicate file path in batch: " + newMovie.filePath());
             }
+        }
+
+        try (Timer.Sample sample = CREATE_BATCH.start();
+             Connection conn = cm.getConnection()) {
+            conn.setAutoCommit(false);
 
-            try (ResultSet keys = ps.getGeneratedKeys()) {
-                if (keys.next()) return keys.getInt(1);
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                int p = 1;
+                for (NewMovie newMovie : newMovies) {
+                    ps.setString(p++, newMovie.title());
+                    ps.setDouble(p++, newMovie.imdbRating());
+                    ps.setString(p++, newMovie.filePath());
+                }
+
+                List<Movie> created = new ArrayList<>(newMovies.size());
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        NewMovie newMovie = byPath.get(rs.getString(2));
+                        if (newMovie == null) {
+                            throw new SQLException("Inserted row has an unexpected file path: " + rs.getString(2));
+                        }
+                        created.add(new Movie(rs.getInt(1), newMovie.title(), newMovie.imdbRating(), newMovie.filePath()));
+                    }
+                }
+                if (created.size() != newMovies.size()) {
+                    throw new SQLException("Insert failed, rows affected: " + created.size() + " of " + newMovies.size());
+                }
+
+                if (!categoryIds.isEmpty()) {
+                    List<Integer> movieIds = new ArrayList<>(created.size());
+                    for (Movie movie : created) {
+                        movieIds.add(movie.getId());
+                    }
+                    CatMovieDAO.insertLinks(conn, movieIds, categoryIds);
+                }
+
+                conn.commit();
+                sample.success(created.size());
+                return created;
+
+            } catch (SQLException | RuntimeException e) {
+                // anything else would leave the transaction open, and setAutoCommit(true) would commit it
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
-            throw new SQLException("No generated key returned for Movie insert.");
         }
     }
 
+    public record NewMovie(String title, double imdbRating, String filePath) {
+    }
+
+    // The file path of every movie, to tell which files on disk are already in the catalog.
+    public Set<String> getFilePaths() throws SQLException {
+        String sql = """
+            SELECT filePath
+            FROM dbo.Movie
+            WHERE filePath IS NOT NULL
+            """;
+
+        Set<String> paths = new HashSet<>();
+
+        try (Timer.Sample sample = GET_FILE_PATHS.start();
+             Connection conn = cm.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setFetchSize(1000);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    paths.add(rs.getString(1));
+                }
+            }
+            sample.success(paths.size());
+        }
+        return paths;
+    }
 
     public List<Movie> getAll() throws SQLException {
         String sql = """
@@ -59,35 +223,140 @@ public class MovieDAO {
 
         List<Movie> movies = new ArrayList<>();
 
-        try (Connection conn = cm.getConnection();
+        try (Timer.Sample sample = GET_ALL.start();
+             Connection conn = cm.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
 
             while (rs.next()) {
                 movies.add(mapMovie(rs));
             }
+            sample.success(movies.size());
         }
         return movies;
     }
 
-    public Movie getById(int movieId) throws SQLException {
+    // Every movie in getAll() order, mapped while the rows arrive. Close the stream to give the connection back.
+    public Stream<Movie> streamAll(int fetchSize) throws SQLException {
         String sql = """
             SELECT id, title, imdbRating, personalRating, filePath, lastViewed
             FROM dbo.Movie
-            WHERE id = ?
+            ORDER BY id DESC
             """;
 
-        try (Connection conn = cm.getConnection();
+        return ResultSetStream.query(cm, sql, fetchSize, ps -> { }, this::mapMovie, STREAM_ALL);
+    }
+
+    // Streaming searchByTitle.
+    public Stream<Movie> streamByTitle(String titlePart, int fetchSize) throws SQLException {
+        String sql = """
+            SELECT id, title, imdbRating, personalRating, filePath, lastViewed
+            FROM dbo.Movie
+            WHERE title LIKE ?
+            ORDER BY title
+            """;
+
+        return ResultSetStream.query(cm, sql, fetchSize, ps -> ps.setString(1, "%" + titlePart + "%"),
+                this::mapMovie, STREAM_BY_TITLE);
+    }
+
+    // Pushes every movie to the consumer in getAll() order without collecting them first.
+    public void forEachMovie(int fetchSize, Consumer<Movie> consumer) throws SQLException {
+        String sql = """
+            SELECT id, title, imdbRating, personalRating, filePath, lastViewed
+            FROM dbo.Movie
+            ORDER BY id DESC
+            """;
+
+        try (Timer.Sample sample = FOR_EACH.start();
+             Connection conn = cm.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
-            ps.setInt(1, movieId);
+            ps.setFetchSize(fetchSize);
 
+            long rows = 0;
             try (ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? mapMovie(rs) : null;
+                while (rs.next()) {
+                    consumer.accept(mapMovie(rs));
+                    rows++;
+                }
             }
+            sample.success(rows);
         }
     }
 
+    // Keyset pagination in getAll() order (newest first): the page after the movie with id afterId,
+    // or the first page when afterId is null. Each page is one index seek, however deep the user scrolls.
+    public List<Movie> getPageById(Integer afterId, int pageSize) throws SQLException {
+        String sql = (afterId == null)
+                ? """
+                SELECT TOP (?) id, title, imdbRating, personalRating, filePath, lastViewed
+                FROM dbo.Movie
+                ORDER BY id DESC
+                """
+                : """
+                SELECT TOP (?) id, title, imdbRating, personalRating, filePath, lastViewed
+                FROM dbo.Movie
+                WHERE id < ?
+                ORDER BY id DESC
+                """;
+
+        List<Movie> movies = new ArrayList<>(pageSize);
+
+        try (Timer.Sample sample = PAGE_BY_ID.start();
+             Connection conn = cm.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setInt(1, pageSize);
+            if (afterId != null) {
+                ps.setInt(2, afterId);
+            }
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) movies.add(mapMovie(rs));
+            }
+            sample.success(movies.size());
+        }
+        return movies;
+    }
+
+    // Keyset pagination ordered by title, ties broken by id: the page after (afterTitle, afterId),
+    // or the first page when afterTitle is null. Uses IX_Movie_Title from db/indexes.sql.
+    public List<Movie> getPageByTitle(String afterTitle, int afterId, int pageSize) throws SQLException {
+        String sql = (afterTitle == null)
+                ? """
+                SELECT TOP (?) id, title, imdbRating, personalRating, filePath, lastViewed
+                FROM dbo.Movie
+                ORDER BY title, id
+                """
+                : """
+                SELECT TOP (?) id, title, imdbRating, personalRating, filePath, lastViewed
+                FROM dbo.Movie
+                WHERE title > ? OR (title = ? AND id > ?)
+                ORDER BY title, id
+                """;
+
+        List<Movie> movies = new ArrayList<>(pageSize);
+
+        try (Timer.Sample sample = PAGE_BY_TITLE.start();
+             Connection conn = cm.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setInt(1, pageSize);
+            if (afterTitle != null) {
+                ps.setString(2, afterTitle);
+                ps.setString(3, afterTitle);
+                ps.setInt(4, afterId);
+            }
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) movies.add(mapMovie(rs));
+            }
+            sample.success(movies.size());
+        }
+        return movies;
+    }
+
     public List<Movie> searchByTitle(String titlePart) throws SQLException {
         String sql = """
             SELECT id, title, imdbRating, personalRating, filePath, lastViewed
@@ -98,7 +367,8 @@ public class MovieDAO {
 
         List<Movie> movies = new ArrayList<>();
 
-        try (Connection conn = cm.getConnection();
+        try (Timer.Sample sample = SEARCH_BY_TITLE.start();
+             Connection conn = cm.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setString(1, "%" + titlePart + "%");
@@ -106,41 +376,155 @@ public class MovieDAO {
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) movies.add(mapMovie(rs));
             }
+            sample.success(movies.size());
         }
         return movies;
     }
 
-    public void updatePersonalRating(int movieId, Double personalRating) throws SQLException {
-        String sql = "UPDATE dbo.Movie SET personalRating = ? WHERE id = ?";
+    // One page of the movies matching every criterion, filtered, sorted and paged by the server in one statement.
+    // Pages continue after the last movie of the previous one, like getPageById and getPageByTitle, so movies
+    // added or deleted meanwhile do not shift rows between pages. Category links are not read; see CatMovieDAO.forEachLinkOf.
+    public List<Movie> search(MovieSearch criteria) throws SQLException {
+        StringBuilder sql = new StringBuilder("""
+            SELECT TOP (?) m.id, m.title, m.imdbRating, m.personalRating, m.filePath, m.lastViewed
+            FROM dbo.Movie m
+            WHERE 1 = 1
+            """);
+        List<Object> params = new ArrayList<>();
+        params.add(criteria.limit());
+
+        if (!criteria.isFirstPage()) {
+            switch (criteria.sort()) {
+                case NEWEST_FIRST -> {
+                    sql.append("AND m.id < ?\n");
+                    params.add(criteria.afterId());
+                }
+                case TITLE -> {
+                    sql.append("AND (m.title > ? OR (m.title = ? AND m.id > ?))\n");
+                    params.add(criteria.afterTitle());
+                    params.add(criteria.afterTitle());
+                    params.add(criteria.afterId());
+                }
+            }
+        }
 
-        try (Connection conn = cm.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+        if (criteria.hasTitle()) {
+            // titles starting with the text: a range seek on IX_Movie_Title, where '%text%' would scan every row
+            sql.append("AND m.title LIKE ? ESCAPE '\\'\n");
+            params.add(escapeLike(criteria.title()) + "%");
+        }
+        if (criteria.minImdb() != null) {
+            sql.append("AND m.imdbRating >= ?\n");
+            params.add(criteria.minImdb());
+        }
+        if (criteria.maxImdb() != null) {
+            sql.append("AND m.imdbRating <= ?\n");
+            params.add(criteria.maxImdb());
+        }
 
-            if (personalRating == null) {
-                ps.setNull(1, Types.DECIMAL);
+        List<Integer> categoryIds = criteria.categoryIds().stream().distinct().toList();
+        if (!categoryIds.isEmpty()) {
+            String in = String.join(", ", Collections.nCopies(categoryIds.size(), "?"));
+            if (criteria.allCategories()) {
+                sql.append("AND (SELECT COUNT(*) FROM dbo.CatMovie cm WHERE cm.MovieId = m.id AND cm.CategoryId IN (")
+                   .append(in).append(")) = ?\n");
+                params.addAll(categoryIds);
+                params.add(categoryIds.size());
             } else {
-                ps.setBigDecimal(1, BigDecimal.valueOf(personalRating));
+                sql.append("AND EXISTS (SELECT 1 FROM dbo.CatMovie cm WHERE cm.MovieId = m.id AND cm.CategoryId IN (")
+                   .append(in).append("))\n");
+                params.addAll(categoryIds);
+            }
+        }
+
+        sql.append(switch (criteria.sort()) {
+            case NEWEST_FIRST -> "ORDER BY m.id DESC";
+            case TITLE -> "ORDER BY m.title, m.id";
+        });
+
+        List<Movie> movies = new ArrayList<>(Math.min(criteria.limit(), 1000));
+
+        try (Timer.Sample sample = SEARCH.start();
+             Connection conn = cm.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) movies.add(mapMovie(rs));
             }
-            ps.setInt(2, movieId);
+            sample.success(movies.size());
+        }
+        return movies;
+    }
+
+    public int count() throws SQLException {
+        String sql = "SELECT COUNT(*) FROM dbo.Movie";
+
+        try (Timer.Sample sample = COUNT.start();
+             Connection conn = cm.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
 
-            ps.executeUpdate();
+            rs.next();
+            sample.success(1);
+            return rs.getInt(1);
         }
     }
 
-    public void updateLastView(int movieId, LocalDate lastView) throws SQLException {
-        String sql = "UPDATE dbo.Movie SET lastViewed = ? WHERE id = ?";
+    // LIKE treats %, _ and [ as patterns; the user means them literally.
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\")
+                   .replace("%", "\\%")
+                   .replace("_", "\\_")
+                   .replace("[", "\\[");
+    }
 
-        try (Connection conn = cm.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+    // Writes many rating and last view updates as two JDBC batches in one transaction.
+    public void updateRatingsAndLastViews(Map<Integer, Double> personalRatings,
+                                          Map<Integer, LocalDate> lastViews) throws SQLException {
+        String ratingSql = "UPDATE dbo.Movie SET personalRating = ? WHERE id = ?";
+        String lastViewSql = "UPDATE dbo.Movie SET lastViewed = ? WHERE id = ?";
 
-            if (lastView == null) {
-                ps.setNull(1, Types.TIMESTAMP);
-            } else {
-                ps.setTimestamp(1, Timestamp.valueOf(lastView.atStartOfDay()));
-            }
-            ps.setInt(2, movieId);
+        try (Timer.Sample sample = UPDATE_BATCH.start();
+             Connection conn = cm.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps1 = conn.prepareStatement(ratingSql);
+                 PreparedStatement ps2 = conn.prepareStatement(lastViewSql)) {
+
+                for (Map.Entry<Integer, Double> e : personalRatings.entrySet()) {
+                    if (e.getValue() == null) {
+                        ps1.setNull(1, Types.DECIMAL);
+                    } else {
+                        ps1.setBigDecimal(1, BigDecimal.valueOf(e.getValue()));
+                    }
+                    ps1.setInt(2, e.getKey());
+                    ps1.addBatch();
+                }
+
+                for (Map.Entry<Integer, LocalDate> e : lastViews.entrySet()) {
+                    if (e.getValue() == null) {
+                        ps2.setNull(1, Types.TIMESTAMP);
+                    } else {
+                        ps2.setTimestamp(1, Timestamp.valueOf(e.getValue().atStartOfDay()));
+                    }
+                    ps2.setInt(2, e.getKey());
+                    ps2.addBatch();
+                }
+
+                if (!personalRatings.isEmpty()) ps1.executeBatch();
+                if (!lastViews.isEmpty()) ps2.executeBatch();
 
-            ps.executeUpdate();
+                conn.commit();
+                sample.success(personalRatings.size() + lastViews.size());
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
         }
     }
 
@@ -148,7 +532,8 @@ public class MovieDAO {
         String deleteLinks = "DELETE FROM dbo.CatMovie WHERE MovieId = ?";
         String deleteMovie = "DELETE FROM dbo.Movie WHERE id = ?";
 
-        try (Connection conn = cm.getConnection()) {
+        try (Timer.Sample sample = DELETE_BY_ID.start();
+             Connection conn = cm.getConnection()) {
             conn.setAutoCommit(false);
             try (PreparedStatement ps1 = conn.prepareStatement(deleteLinks);
                  PreparedStatement ps2 = conn.prepareStatement(deleteMovie)) {
@@ -160,6 +545,7 @@ public class MovieDAO {
                 int rows = ps2.executeUpdate();
 
                 conn.commit();
+                sample.success(rows);
                 return rows == 1;
             } catch (SQLException e) {
                 conn.rollback();
@@ -170,28 +556,57 @@ public class MovieDAO {
         }
     }
 
-    private Movie mapMovie(ResultSet rs) throws SQLException {
+    // Movies inserted, updated or deleted since the given change tracking version.
+    public Delta<Movie, Integer> getChangesSince(long version) throws SQLException {
+        String sql = """
+            SELECT ct.id AS changedId, ct.SYS_CHANGE_OPERATION AS operation,
+                   m.id, m.title, m.imdbRating, m.personalRating, m.filePath, m.lastViewed
+            FROM CHANGETABLE(CHANGES dbo.Movie, ?) AS ct
+            LEFT JOIN dbo.Movie m ON m.id = ct.id
+            """;
+
+        List<Movie> changed = new ArrayList<>();
+        List<Integer> deleted = new ArrayList<>();
+
+        try (Timer.Sample sample = GET_CHANGES.start();
+             Connection conn = cm.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setLong(1, version);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    // a row can be changed and deleted again before we look; the join then finds nothing
+                    if ("D".equals(rs.getString("operation")) || rs.getObject("id") == null) {
+                        deleted.add(rs.getInt("changedId"));
+                    } else {
+                        changed.add(mapMovie(rs));
+                    }
+                }
+            }
+            sample.success(changed.size() + deleted.size());
+        }
+        return new Delta<>(changed, deleted);
+    }
+
+    // package-private so the row mapping can be benchmarked on its own
+    Movie mapMovie(ResultSet rs) throws SQLException {
         int id = rs.getInt("id");
         String title = rs.getString("title");
 
-        BigDecimal imdbBD = rs.getBigDecimal("imdbRating");
-        double imdb = (imdbBD == null) ? 0.0 : imdbBD.doubleValue();
+        // getDouble gives 0 for NULL, which is what a missing IMDb rating was mapped to anyway
+        double imdb = rs.getDouble("imdbRating");
 
         String filePath = rs.getString("filePath");
 
         Movie m = new Movie(id, title, imdb, filePath);
 
 
-        BigDecimal personalBD = rs.getBigDecimal("personalRating");
-        if (personalBD != null) {
-            double pr = personalBD.doubleValue();
-            if (pr >= 0) {
-                m.setPersonalRating(pr);
-            } else {
-                m.setPersonalRating(-1); // keep "not rated yet"
-            }
+        double pr = rs.getDouble("personalRating");
+        if (!rs.wasNull() && pr >= 0) {
+            m.setPersonalRating(pr);
         } else {
-            m.setPersonalRating(-1);
+            m.setPersonalRating(-1); // keep "not rated yet"
         }
 
         // lastViewed can be null
@@ -0,0 +1,42 @@
+package dal;
+
+import java.util.List;
+
+// Criteria for MovieDAO.search. Null bounds, a null or empty title and an empty id list mean "no filter".
+// The title matches titles that start with it, ignoring case.
+// One page of the sorted result is read at a time: afterTitle and afterId are the sort key of the last movie
+// of the previous page (afterTitle only for TITLE), both null for the first page.
+public record MovieSearch(String title,
+                          Double minImdb,
+                          Double maxImdb,
+                          List<Integer> categoryIds,
+                          boolean allCategories,
+                          Sort sort,
+                          String afterTitle,
+                          Integer afterId,
+                          int limit) {
+
+    public enum Sort {
+        NEWEST_FIRST,   // id descending, the getAll() order
+        TITLE           // title, then id
+    }
+
+    public MovieSearch {
+        categoryIds = (categoryIds == null) ? List.of() : List.copyOf(categoryIds);
+        sort = (sort == null) ? Sort.NEWEST_FIRST : sort;
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be > 0");
+        }
+        if (sort == Sort.TITLE && (afterTitle == null) != (afterId == null)) {
+            throw new IllegalArgumentException("a title page continues after both a title and an id");
+        }
+    }
+
+    public boolean hasTitle() {
+        return title != null && !title.isEmpty();
+    }
+
+    public boolean isFirstPage() {
+        return afterId == null;
+    }
+}
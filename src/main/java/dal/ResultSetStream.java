@@ -0,0 +1,94 @@
+package dal;
+
+import metrics.Timer;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Runs a query and returns its rows as a lazy Stream, mapped one at a time. Closing the stream closes the
+// result set, statement and connection, so it must be used in try-with-resources. With the SQL Server driver's
+// default adaptive buffering only about fetchSize rows are held in memory, however large the table is.
+final class ResultSetStream {
+
+    interface ParameterSetter {
+        void set(PreparedStatement ps) throws SQLException;
+    }
+
+    interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    private ResultSetStream() {
+    }
+
+    static <T> Stream<T> query(ConnectionManager cm, String sql, int fetchSize, ParameterSetter parameters,
+                               RowMapper<T> mapper, Timer timer) throws SQLException {
+        Timer.Sample sample = timer.start();
+        Connection conn = null;
+        PreparedStatement ps = null;
+        ResultSet rs;
+        try {
+            conn = cm.getConnection();
+            ps = conn.prepareStatement(sql);
+            ps.setFetchSize(fetchSize);
+            parameters.set(ps);
+            rs = ps.executeQuery();
+        } catch (SQLException | RuntimeException e) {
+            closeAll(null, ps, conn);
+            sample.close();
+            throw e;
+        }
+
+        // a stream closed early (limit, findFirst) still succeeded; only a failing row read counts as an error
+        long[] rows = new long[1];
+        boolean[] failed = new boolean[1];
+
+        Spliterator<T> rowSpliterator = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                try {
+                    if (!rs.next()) {
+                        return false;
+                    }
+                    rows[0]++;
+                    action.accept(mapper.map(rs));
+                    return true;
+                } catch (SQLException e) {
+                    failed[0] = true;
+                    throw new UncheckedSQLException(e);
+                }
+            }
+        };
+
+        Connection openConn = conn;
+        PreparedStatement openPs = ps;
+        return StreamSupport.stream(rowSpliterator, false).onClose(() -> {
+            if (!failed[0]) sample.success(rows[0]);
+            closeAll(rs, openPs, openConn);
+            sample.close();
+        });
+    }
+
+    private static void closeAll(ResultSet rs, PreparedStatement ps, Connection conn) {
+        try {
+            if (rs != null) rs.close();
+            if (ps != null) ps.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            try {
+                if (conn != null) conn.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -4,7 +4,7 @@ import java.sql.Connection;
 
     public class TestConnection {
         public static void main(String[] args) {
-            try (Connection conn = new ConnectionManager().getConnection()) {
+            try (Connection conn = ConnectionManager.getInstance().getConnection()) {
 
                 System.out.println(" CONNECTED TO DATABASE");
                 System.out.println("DB name: " + conn.getCatalog());
@@ -0,0 +1,18 @@
+package dal;
+
+import java.sql.SQLException;
+
+// Carries a SQLException out of a Stream returned by a DAO, where checked exceptions cannot go.
+public class UncheckedSQLException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public UncheckedSQLException(SQLException cause) {
+        super(cause.getMessage(), cause);
+    }
+
+    @Override
+    public synchronized SQLException getCause() {
+        return (SQLException) super.getCause();
+    }
+}
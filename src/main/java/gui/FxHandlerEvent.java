@@ -0,0 +1,41 @@
+package gui;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// Flight Recorder event around code that runs on the FX application thread: handlers, callbacks, list updates.
+@Name("pmc.FxHandler")
+@Label("FX Handler")
+@Category({"Private Movie Collection", "JavaFX"})
+@Description("Time spent on the JavaFX application thread in a controller method")
+class FxHandlerEvent extends Event {
+
+    @Label("Handler")
+    String handler;
+
+    static FxHandlerEvent start(String handler) {
+        FxHandlerEvent event = new FxHandlerEvent();
+        event.handler = handler;
+        event.begin();
+        return event;
+    }
+
+    static void trace(String handler, Runnable code) {
+        FxHandlerEvent event = start(handler);
+        try {
+            code.run();
+        } finally {
+            event.finish();
+        }
+    }
+
+    void finish() {
+        end();
+        if (shouldCommit()) {
+            commit();
+        }
+    }
+}
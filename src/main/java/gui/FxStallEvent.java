@@ -0,0 +1,26 @@
+package gui;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// Emitted by FxWatchdog after the FX thread was blocked longer than the threshold.
+// The event's own stack would be the watchdog's, so the FX thread's stack is stored as text instead.
+@Name("pmc.FxStall")
+@Label("FX Thread Stall")
+@Category({"Private Movie Collection", "JavaFX"})
+@Description("The JavaFX application thread did not process events for longer than the threshold")
+@StackTrace(false)
+class FxStallEvent extends Event {
+
+    @Label("Blocked")
+    @Timespan(Timespan.NANOSECONDS)
+    long blocked;
+
+    @Label("FX Thread Stack")
+    String stackTrace;
+}
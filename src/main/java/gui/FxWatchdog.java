@@ -0,0 +1,91 @@
+package gui;
+
+import javafx.application.Platform;
+import metrics.Metrics;
+import metrics.Timer;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Posts a heartbeat to the FX thread and checks that it runs. If it has not run after the threshold,
+// the FX thread's stack is taken while it is still stuck, and reported once the thread is free again:
+// as a pmc.FxStall Flight Recorder event, in the FxThread.stall timer and on stderr.
+public class FxWatchdog {
+
+    private static final Timer STALLS = Metrics.timer("FxThread.stall");
+
+    private final Duration threshold;
+    private final ScheduledExecutorService scheduler;
+    private volatile Thread fxThread;
+
+    // nanoTime the outstanding heartbeat was posted, and the last time the FX thread ran one
+    private volatile long posted;
+    private volatile long answered;
+
+    // only touched by the watchdog thread
+    private StackTraceElement[] stallStack;
+
+    public FxWatchdog(Duration threshold) {
+        this.threshold = threshold;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "fx-watchdog");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static FxWatchdog fromSystemProperties() {
+        return new FxWatchdog(Duration.ofMillis(Long.getLong("pmc.fx.stallThresholdMs", 500)));
+    }
+
+    // Must be called on the FX thread.
+    public void start() {
+        fxThread = Thread.currentThread();
+        long period = Math.max(10, threshold.toMillis() / 5);
+        scheduler.scheduleWithFixedDelay(this::check, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    private void check() {
+        long now = System.nanoTime();
+
+        if (posted != 0 && answered < posted) {
+            // the heartbeat is still waiting; take the stack once, while the thread is stuck
+            if (stallStack == null && now - posted >= threshold.toNanos()) {
+                stallStack = fxThread.getStackTrace();
+            }
+            return;
+        }
+
+        if (stallStack != null) {
+            report(answered - posted, stallStack);
+            stallStack = null;
+        }
+
+        posted = now;
+        Platform.runLater(() -> answered = System.nanoTime());
+    }
+
+    private void report(long blockedNanos, StackTraceElement[] stack) {
+        StringBuilder sb = new StringBuilder();
+        for (StackTraceElement element : stack) {
+            sb.append("\tat ").append(element).append('\n');
+        }
+
+        STALLS.record(blockedNanos, 0, false);
+
+        FxStallEvent event = new FxStallEvent();
+        if (event.shouldCommit()) {
+            event.blocked = blockedNanos;
+            event.stackTrace = sb.toString();
+            event.commit();
+        }
+
+        System.err.println("JavaFX thread blocked for " + TimeUnit.NANOSECONDS.toMillis(blockedNanos) + " ms at:\n" + sb);
+    }
+}
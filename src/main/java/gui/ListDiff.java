@@ -0,0 +1,95 @@
+package gui;
+
+import javafx.collections.ObservableList;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Turns a list into a new version of itself with as few change events as possible, so a ListView keeps
+// its selection and scroll position and only redraws what changed. Works when both lists share an order,
+// as all filter results of the catalog do; anything else (a ranked result) falls back to one setAll.
+final class ListDiff {
+
+    // beyond this many inserted runs, one setAll is cheaper than shifting the list over and over
+    private static final int MAX_INSERT_RUNS = 64;
+
+    private ListDiff() {
+    }
+
+    static <T> void apply(ObservableList<T> items, List<T> target) {
+        Map<T, Integer> position = new IdentityHashMap<>(target.size() * 2);
+        for (int i = 0; i < target.size(); i++) {
+            position.put(target.get(i), i);
+        }
+
+        if (!keepsOrder(items, position) || insertRuns(items, target, position) > MAX_INSERT_RUNS) {
+            items.setAll(target);
+            return;
+        }
+
+        // one remove per run of unwanted items, from the end so earlier indexes stay valid;
+        // removeIf would notify once per removed item
+        int end = items.size();
+        while (end > 0) {
+            if (position.containsKey(items.get(end - 1))) {
+                end--;
+                continue;
+            }
+            int start = end - 1;
+            while (start > 0 && !position.containsKey(items.get(start - 1))) {
+                start--;
+            }
+            items.remove(start, end);
+            end = start;
+        }
+
+        // what is left is a subsequence of target; insert the missing runs where they belong
+        int at = 0;
+        int i = 0;
+        while (i < target.size()) {
+            if (at < items.size() && items.get(at) == target.get(i)) {
+                at++;
+                i++;
+                continue;
+            }
+            int runEnd = i;
+            T next = at < items.size() ? items.get(at) : null;
+            while (runEnd < target.size() && target.get(runEnd) != next) {
+                runEnd++;
+            }
+            items.addAll(at, target.subList(i, runEnd));
+            at += runEnd - i;
+            i = runEnd;
+        }
+    }
+
+    // Whether the items that stay appear in the same relative order in target.
+    private static <T> boolean keepsOrder(List<T> items, Map<T, Integer> position) {
+        int last = -1;
+        for (T item : items) {
+            Integer pos = position.get(item);
+            if (pos == null) continue;
+            if (pos <= last) return false;
+            last = pos;
+        }
+        return true;
+    }
+
+    private static <T> int insertRuns(List<T> items, List<T> target, Map<T, Integer> position) {
+        Set<T> present = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (T item : items) {
+            if (position.containsKey(item)) present.add(item);
+        }
+        int runs = 0;
+        boolean inRun = false;
+        for (T item : target) {
+            boolean missing = !present.contains(item);
+            if (missing && !inRun) runs++;
+            inRun = missing;
+        }
+        return runs;
+    }
+}
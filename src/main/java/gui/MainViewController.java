@@ -1,18 +1,41 @@
 package gui;
 
+import bll.BulkImporter;
+import bll.CatalogEvent;
+import bll.CategoryMatch;
+import bll.FileAvailabilityScanner;
+import bll.MovieOrder;
+import bll.MovieQuery;
 import bll.MovieService;
+import bll.VideoFiles;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.collections.ListChangeListener;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
+import metrics.Metrics;
 import model.Category;
+import model.FileStatus;
 import model.Movie;
 
 import java.awt.Desktop;
 import java.io.File;
 import java.io.IOException;
-import java.sql.SQLException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 public class MainViewController {
 
@@ -20,87 +43,453 @@ public class MainViewController {
 
     @FXML private TextField txtTitle;
     @FXML private TextField txtMinRating;
+    @FXML private TextField txtMaxRating;
+    @FXML private CheckBox chkMatchAllCategories;
 
     @FXML private ListView<Category> categoryListView;
     @FXML private ListView<Movie> movieListView;
+    @FXML private ProgressIndicator progressIndicator;
+
+    // number of background tasks still running, the progress indicator shows while > 0
+    private int runningTasks;
+
+    // the latest request that replaces the movie list; an older one is cancelled when a new one starts
+    private CompletableFuture<?> pendingListUpdate;
+
+    // filter currently shown in movieListView, null when all movies are shown
+    private MovieQuery currentQuery;
+
+    // shows the newest movies page by page until the full catalog is loaded
+    private MoviePager pager;
+
+    // live filtering: every edit restarts the pause, the filter runs once typing stops for a moment
+    private static final javafx.util.Duration LIVE_FILTER_DELAY = javafx.util.Duration.millis(250);
+    private final PauseTransition liveFilter = new PauseTransition(LIVE_FILTER_DELAY);
+
+    // checks movie files in the background and reports new ones; new files are offered in one dialog per burst
+    private FileAvailabilityScanner fileScanner;
+    private final Set<Path> newFiles = new LinkedHashSet<>();
+    private final PauseTransition importOffer = new PauseTransition(javafx.util.Duration.seconds(2));
+
+    // the first load is retried until the database answers; only the first failure is shown
+    private final PauseTransition loadRetry = new PauseTransition(javafx.util.Duration.seconds(15));
+    private boolean loadFailed;
 
     @FXML
     public void initialize() {
+        FxHandlerEvent.trace("initialize", this::initializeView);
+    }
+
+    private void initializeView() {
         categoryListView.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        movieListView.setPlaceholder(new Label("Loading movies..."));
+
+        movieService.addWriteFailureListener((movieIds, error) -> Platform.runLater(() -> {
+            Alert alert = new Alert(Alert.AlertType.ERROR);
+            alert.setTitle("Changes not saved");
+            alert.setHeaderText("Ratings or view dates of " + movieIds.size() + " movie(s) could not be saved");
+            alert.setContentText(error.getMessage());
+            alert.show();
+        }));
+
+        liveFilter.setOnFinished(event -> FxHandlerEvent.trace("liveFilter", () -> applyFilter(false)));
+        txtTitle.textProperty().addListener((obs, oldText, newText) -> liveFilter.playFromStart());
+        txtMinRating.textProperty().addListener((obs, oldText, newText) -> liveFilter.playFromStart());
+        txtMaxRating.textProperty().addListener((obs, oldText, newText) -> liveFilter.playFromStart());
+        chkMatchAllCategories.selectedProperty().addListener((obs, was, is) -> liveFilter.playFromStart());
+        categoryListView.getSelectionModel().getSelectedItems()
+                .addListener((ListChangeListener<Category>) change -> liveFilter.playFromStart());
+
+        pager = new MoviePager(movieListView, movieService, MovieOrder.NEWEST_FIRST, 100, 20);
+        movieListView.setCellFactory(view -> new ListCell<>() {
+            @Override
+            protected void updateItem(Movie movie, boolean empty) {
+                super.updateItem(movie, empty);
+                boolean missing = !empty && movie != null && movie.getFileStatus() == FileStatus.MISSING;
+                setText(empty || movie == null ? null : movie.toString() + (missing ? "  |  File missing" : ""));
+                setStyle(missing ? "-fx-text-fill: gray;" : null);
+                if (!empty) {
+                    pager.cellShown(getIndex());
+                }
+            }
+        });
+        pager.start();
 
-        movieService.loadCategories();
-        movieService.loadMovies();
+        // every change is applied to the lists one by one, also while the first load is still running or failing
+        movieService.addListener(event -> Platform.runLater(() -> FxHandlerEvent.trace("applyChange", () -> applyChange(event))));
 
-        categoryListView.getItems().setAll(movieService.getCategories());
-        movieListView.getItems().setAll(movieService.getMovies());
+        movieService.start();
+        loadRetry.setOnFinished(event -> FxHandlerEvent.trace("loadRetry", this::loadCatalog));
+        loadCatalog();
+    }
 
-        if (!movieListView.getItems().isEmpty()) {
-            movieListView.getSelectionModel().selectFirst();
+    // not through replaceMovieList: filtering while this runs must not cancel the rest of the setup
+    private void loadCatalog() {
+        runInBackground(movieService.loadAllAsync(), ignored -> {
+            pager.stop();
+            categoryListView.getItems().setAll(movieService.getCategories());
+            refreshMovieList();
+            movieListView.setPlaceholder(new Label("No movies"));
+
+            // changes made on other workstations are pulled in the background
+            movieService.startSync(Duration.ofSeconds(30));
+            startFileScanner();
+
+            promptCleanup();
+        }, error -> {
+            if (!loadFailed) showError(error);
+            loadFailed = true;
+            movieListView.setPlaceholder(new Label("Could not load movies, trying again..."));
+            loadRetry.playFromStart();
+        });
+    }
+
+    private void applyChange(CatalogEvent event) {
+        List<Movie> items = movieListView.getItems();
+
+        switch (event.type()) {
+            case MOVIE_ADDED -> {
+                if (movieService.matches(currentQuery, event.movie())) {
+                    addMovies(List.of(event.movie()));
+                }
+            }
+            case MOVIES_ADDED -> {
+                List<Movie> matching = new ArrayList<>();
+                for (Movie movie : event.movies()) {
+                    if (movieService.matches(currentQuery, movie)) matching.add(movie);
+                }
+                addMovies(matching);
+            }
+            case MOVIE_REMOVED -> {
+                int index = items.indexOf(event.movie());
+                if (index >= 0) {
+                    boolean wasSelected = movieListView.getSelectionModel().getSelectedIndex() == index;
+                    items.remove(index);
+                    if (wasSelected && !items.isEmpty()) {
+                        movieListView.getSelectionModel().select(Math.min(index, items.size() - 1));
+                    }
+                }
+            }
+            case MOVIE_UPDATED -> {
+                boolean shown = items.contains(event.movie());
+                boolean matches = movieService.matches(currentQuery, event.movie());
+                if (shown && matches) {
+                    movieListView.refresh();
+                } else if (shown) {
+                    items.remove(event.movie());
+                } else if (matches) {
+                    // its position depends on the filter order, let the service place it
+                    refreshMovieList();
+                }
+            }
+            case CATEGORY_ADDED -> categoryListView.getItems().add(event.category());
+            case CATEGORY_UPDATED -> categoryListView.refresh();
+            case CATEGORY_REMOVED -> {
+                categoryListView.getItems().remove(event.category());
+                if (currentQuery != null && currentQuery.categories().contains(event.category())) {
+                    refreshMovieList();
+                }
+            }
+            case FILES_CHECKED -> movieListView.refresh();
+            case RELOADED -> {
+                categoryListView.getItems().setAll(movieService.getCategories());
+                refreshMovieList();
+            }
+        }
+    }
+
+    // The loaded catalog lists new movies last. The pager shows database pages newest first, so there they go on top.
+    private void addMovies(List<Movie> added) {
+        if (added.isEmpty()) return;
+        if (movieService.isCatalogInMemory()) {
+            movieListView.getItems().addAll(added);   // one list change for the whole chunk
+        } else {
+            List<Movie> newestFirst = new ArrayList<>(added);
+            newestFirst.sort(Comparator.comparingInt(Movie::getId).reversed());
+            movieListView.getItems().addAll(0, newestFirst);
+        }
+    }
+
+    // Offers to delete the movies not watched for two years that are unrated or rated below 6.
+    // The service answers from its warning index, so this does not walk the whole catalog.
+    private void promptCleanup() {
+        runInBackground(movieService.getMoviesToWarnAsync(), movies -> {
+            if (movies.isEmpty()) return;
+
+            ListView<Movie> list = new ListView<>();
+            list.getItems().setAll(movies);
+            list.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+            list.getSelectionModel().selectAll();
+            list.setPrefSize(500, 300);
+
+            ButtonType delete = new ButtonType("Delete selected");
+            Alert alert = new Alert(Alert.AlertType.CONFIRMATION, "", delete, ButtonType.CANCEL);
+            alert.setTitle("Clean up movies");
+            alert.setHeaderText(movies.size() + " movie(s) have not been watched for two years and are unrated or rated below 6");
+            alert.getDialogPane().setContent(list);
+
+            if (alert.showAndWait().filter(delete::equals).isPresent()) {
+                // the list follows through the MOVIE_REMOVED events
+                for (Movie movie : List.copyOf(list.getSelectionModel().getSelectedItems())) {
+                    runInBackground(movieService.deleteMovieAsync(movie), ignored -> { });
+                }
+            }
+        });
+    }
+
+    // Re-runs the current filter, keeping the selected movie selected.
+    private void refreshMovieList() {
+        if (!movieService.isCatalogInMemory()) {
+            // a catalog too big to load is browsed and searched page by page from the database
+            if (currentQuery != null) {
+                pager.start(currentQuery);
+            } else if (!pager.isPagingAll()) {
+                pager.start();
+            }
+            return;
+        }
+
+        Movie selected = movieListView.getSelectionModel().getSelectedItem();
+        CompletableFuture<List<Movie>> task = (currentQuery == null)
+                ? CompletableFuture.completedFuture(movieService.getMovies())
+                : movieService.filterMoviesAsync(currentQuery);
+
+        replaceMovieList(task, movies -> {
+            movieListView.getItems().setAll(movies);
+            if (selected != null && movies.contains(selected)) {
+                movieListView.getSelectionModel().select(selected);
+            } else if (!movies.isEmpty()) {
+                movieListView.getSelectionModel().selectFirst();
+            }
+        });
+    }
+
+    public void shutdown() {
+        if (fileScanner != null) {
+            fileScanner.stop();
+        }
+        movieService.shutdown();
+    }
+
+    private void startFileScanner() {
+        importOffer.setOnFinished(event -> FxHandlerEvent.trace("offerImport", this::offerImport));
+        fileScanner = new FileAvailabilityScanner(movieService, file -> Platform.runLater(() -> {
+            newFiles.add(file);
+            importOffer.playFromStart();   // wait for the rest of a copy of several files
+        }));
+        try {
+            fileScanner.start();
+        } catch (IOException e) {
+            System.err.println("File watching is not available: " + e.getMessage());
         }
     }
 
+    // Asks once for all files that appeared since the last offer.
+    private void offerImport() {
+        if (newFiles.isEmpty()) return;
+        List<Path> files = new ArrayList<>(newFiles);
+        newFiles.clear();
+
+        StringBuilder names = new StringBuilder();
+        for (int i = 0; i < Math.min(files.size(), 10); i++) {
+            names.append(files.get(i).getFileName()).append('\n');
+        }
+        if (files.size() > 10) {
+            names.append("... and ").append(files.size() - 10).append(" more");
+        }
+
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
+        alert.setTitle("New movie files");
+        alert.setHeaderText("Import " + files.size() + " new movie file(s)?");
+        alert.setContentText(names.toString());
+        Optional<ButtonType> answer = alert.showAndWait();
+        if (answer.isEmpty() || answer.get() != ButtonType.OK) return;
+
+        for (Path file : files) {
+            runInBackground(movieService.addMovieAsync(FileAvailabilityScanner.titleOf(file), 0,
+                    file.toAbsolutePath().toString(), List.of()), ignored -> { });
+        }
+    }
+
+    // Runs the callback on the FX thread once the task is done, and shows an error dialog if it failed.
+    private <T> CompletableFuture<T> runInBackground(CompletableFuture<T> task, Consumer<T> onSuccess) {
+        return runInBackground(task, onSuccess, this::showError);
+    }
+
+    private <T> CompletableFuture<T> runInBackground(CompletableFuture<T> task, Consumer<T> onSuccess,
+                                                     Consumer<Throwable> onFailure) {
+        runningTasks++;
+        progressIndicator.setVisible(true);
+
+        task.whenComplete((result, error) -> Platform.runLater(() -> {
+            runningTasks--;
+            progressIndicator.setVisible(runningTasks > 0);
+
+            if (task.isCancelled()) return;
+            if (error != null) {
+                onFailure.accept(error);
+                return;
+            }
+            FxHandlerEvent.trace("taskCompleted", () -> onSuccess.accept(result));
+        }));
+        return task;
+    }
+
+    // Like runInBackground, but a newer call supersedes this one so stale results never reach the list.
+    private <T> void replaceMovieList(CompletableFuture<T> task, Consumer<T> onSuccess) {
+        pager.stop();
+        // interrupts the superseded evaluation, or keeps it from starting at all
+        if (pendingListUpdate != null) {
+            pendingListUpdate.cancel(true);
+        }
+        pendingListUpdate = task;
+        runInBackground(task, onSuccess);
+    }
+
+    private void showError(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof CancellationException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setTitle("Database error");
+        alert.setHeaderText("The operation could not be completed");
+        alert.setContentText(cause.getMessage());
+        alert.show();
+    }
+
     @FXML
     public void onFilterClicked() {
+        FxHandlerEvent.trace("onFilterClicked", this::filter);
+    }
+
+    private void filter() {
+        liveFilter.stop();
+        applyFilter(true);
+    }
+
+    // Runs the filter in the fields. A newer call cancels the evaluation of an older one, and the result is
+    // merged into the list instead of replacing it, so the selection and scroll position survive.
+    private void applyFilter(boolean reportErrors) {
         String titleText = txtTitle.getText();
-        String minRatingText = txtMinRating.getText();
-
-        Double minRating = null;
-        if (minRatingText != null && !minRatingText.trim().isEmpty()) {
-            try {
-                minRating = Double.parseDouble(minRatingText);
-            } catch (NumberFormatException e) {
-                System.out.println("Min IMDb must be a number");
-                return;
+
+        Double minRating;
+        Double maxRating;
+        try {
+            minRating = parseOptionalRating(txtMinRating.getText());
+            maxRating = parseOptionalRating(txtMaxRating.getText());
+        } catch (NumberFormatException e) {
+            if (reportErrors) {
+                System.out.println("Min and max IMDb must be numbers");
             }
+            return;   // half typed, e.g. "-"; the next keystroke tries again
         }
 
         List<Category> selectedCategories = categoryListView.getSelectionModel().getSelectedItems();
-        List<Movie> filtered = movieService.filterMovies(titleText, minRating, selectedCategories);
-        movieListView.getItems().setAll(filtered);
+        CategoryMatch categoryMatch = chkMatchAllCategories.isSelected() ? CategoryMatch.ALL : CategoryMatch.ANY;
+        MovieQuery query = new MovieQuery(titleText, minRating, maxRating, selectedCategories, categoryMatch);
+        if (query.isEmpty()) {
+            showAllMovies();
+            return;
+        }
+        currentQuery = query;
 
-        if (!movieListView.getItems().isEmpty()) {
+        if (!movieService.isCatalogInMemory()) {
+            // one page of the database search at a time, so every match can be reached by scrolling
+            if (pendingListUpdate != null) {
+                pendingListUpdate.cancel(true);
+            }
+            pager.start(query);
+            return;
+        }
+
+        boolean titleOnly = query.hasTitle() && !query.hasImdbRange() && !query.hasCategories();
+        replaceMovieList(movieService.filterMoviesAsync(query), movies -> {
+            if (movies.isEmpty() && titleOnly && movieService.isCatalogInMemory()) {
+                // no title contains the text as typed: show the closest ones, best first
+                replaceMovieList(movieService.fuzzySearchAsync(titleText, 20), this::updateMovieList);
+            } else {
+                updateMovieList(movies);
+            }
+        });
+    }
+
+    private void showAllMovies() {
+        if (pendingListUpdate != null) {
+            pendingListUpdate.cancel(true);
+        }
+        currentQuery = null;
+        if (!pager.isPagingAll()) {   // while paging the list already shows all movies
+            if (movieService.isCatalogInMemory()) {
+                updateMovieList(movieService.getMovies());
+            } else {
+                pager.start();
+            }
+        }
+    }
+
+    // Applies only the differences, see ListDiff.
+    private void updateMovieList(List<Movie> movies) {
+        ListDiff.apply(movieListView.getItems(), movies);
+        if (movieListView.getSelectionModel().getSelectedItem() == null && !movies.isEmpty()) {
             movieListView.getSelectionModel().selectFirst();
         }
     }
 
+    private Double parseOptionalRating(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            return null;
+        }
+        return Double.parseDouble(text.trim());
+    }
+
     @FXML
     public void onClearClicked() {
+        FxHandlerEvent.trace("onClearClicked", this::clearFilter);
+    }
+
+    private void clearFilter() {
         txtTitle.clear();
         txtMinRating.clear();
+        txtMaxRating.clear();
         categoryListView.getSelectionModel().clearSelection();
+        chkMatchAllCategories.setSelected(false);
 
-        movieListView.getItems().setAll(movieService.getMovies());
-
-        if (!movieListView.getItems().isEmpty()) {
-            movieListView.getSelectionModel().selectFirst();
-        }
+        liveFilter.stop();   // the changes above scheduled a live filter run
+        showAllMovies();
     }
 
     @FXML
     public void onDeleteMovieClicked() {
+        FxHandlerEvent.trace("onDeleteMovieClicked", this::deleteSelectedMovie);
+    }
+
+    private void deleteSelectedMovie() {
         Movie selected = movieListView.getSelectionModel().getSelectedItem();
         if (selected == null) {
             System.out.println("Select a movie first");
             return;
         }
 
-        movieService.deleteMovie(selected);
-
-        movieService.loadMovies();
-        movieListView.getItems().setAll(movieService.getMovies());
-
-        if (!movieListView.getItems().isEmpty()) {
-            movieListView.getSelectionModel().selectFirst();
-        }
+        // the MOVIE_REMOVED event takes it out of the list
+        runInBackground(movieService.deleteMovieAsync(selected), ignored -> { });
     }
 
     @FXML
-    public void onAddMovieClicked() throws SQLException {
+    public void onAddMovieClicked() {
+        FxHandlerEvent.trace("onAddMovieClicked", this::addMovie);
+    }
+
+    private void addMovie() {
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Choose a movie file");
-        fileChooser.getExtensionFilters().add(
-                new FileChooser.ExtensionFilter("MP4 Videos (*.mp4)", "*.mp4", "*.MP4")
-        );
+        List<String> patterns = new ArrayList<>();
+        for (String extension : VideoFiles.EXTENSIONS) {
+            patterns.add("*." + extension);
+            patterns.add("*." + extension.toUpperCase(Locale.ROOT));
+        }
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Videos", patterns));
 
         File file = fileChooser.showOpenDialog(movieListView.getScene().getWindow());
         if (file == null) return;
@@ -141,28 +530,70 @@ public class MainViewController {
             return;
         }
 
-        Movie newMovie = movieService.addMovie(
+        CompletableFuture<Movie> added = movieService.addMovieAsync(
                 file.getName(),
                 imdbRating,
-                file.getAbsolutePath()
+                file.getAbsolutePath(),
+                selectedCategories
         );
 
-        for (Category category : selectedCategories) {
-            movieService.addCategoryToMovie(newMovie, category);
-        }
+        // the MOVIE_ADDED event puts it in the list, then it gets selected
+        runInBackground(added, newMovie -> {
+            // Best-effort: keep selection on the added movie
+            if (movieListView.getItems().contains(newMovie)) {
+                movieListView.getSelectionModel().select(newMovie);
+                movieListView.scrollTo(newMovie);
+            }
+        });
+    }
 
-        movieService.loadMovies();
-        movieListView.getItems().setAll(movieService.getMovies());
+    // Imports every video file below a folder, with the selected categories if any.
+    @FXML
+    public void onImportFolderClicked() {
+        FxHandlerEvent.trace("onImportFolderClicked", this::importFolder);
+    }
 
-        // Best-effort: keep selection on the added movie
-        movieListView.getSelectionModel().select(newMovie);
-        if (movieListView.getSelectionModel().getSelectedItem() == null && !movieListView.getItems().isEmpty()) {
-            movieListView.getSelectionModel().selectFirst();
-        }
+    private void importFolder() {
+        DirectoryChooser directoryChooser = new DirectoryChooser();
+        directoryChooser.setTitle("Choose a folder to import");
+
+        File folder = directoryChooser.showDialog(movieListView.getScene().getWindow());
+        if (folder == null) return;
+
+        List<Category> selectedCategories = new ArrayList<>(categoryListView.getSelectionModel().getSelectedItems());
+
+        progressIndicator.setProgress(0);
+        CompletableFuture<BulkImporter.Result> imported = movieService.importFolderAsync(folder.toPath(), selectedCategories,
+                (processed, total) -> Platform.runLater(() -> progressIndicator.setProgress((double) processed / total)));
+        imported.whenComplete((result, error) -> Platform.runLater(
+                () -> progressIndicator.setProgress(ProgressIndicator.INDETERMINATE_PROGRESS)));
+
+        // a MOVIES_ADDED event per chunk puts the new movies in the list
+        runInBackground(imported, result -> {
+            if (fileScanner != null) {
+                fileScanner.watchTree(folder.toPath());   // files added there later are offered for import
+            }
+            Alert alert = new Alert(result.failed() > 0 ? Alert.AlertType.WARNING : Alert.AlertType.INFORMATION);
+            alert.setTitle("Import Folder");
+            alert.setHeaderText("Imported " + result.imported() + " of " + result.found() + " video files");
+            String details = result.skipped() + " already in the collection";
+            if (result.failed() > 0) {
+                details += "\n" + result.failed() + " could not be saved";
+                if (result.firstError() != null) {
+                    details += ": " + result.firstError().getMessage();
+                }
+            }
+            alert.setContentText(details);
+            alert.showAndWait();
+        });
     }
 
     @FXML
     public void onSetRatingClicked() {
+        FxHandlerEvent.trace("onSetRatingClicked", this::setRating);
+    }
+
+    private void setRating() {
         Movie selected = movieListView.getSelectionModel().getSelectedItem();
         if (selected == null) {
             Alert alert = new Alert(Alert.AlertType.INFORMATION);
@@ -198,8 +629,7 @@ public class MainViewController {
                 return;
             }
 
-            movieService.setPersonalRating(selected, rating);
-            movieListView.refresh();
+            runInBackground(movieService.setPersonalRatingAsync(selected, rating), ignored -> { });
 
         } catch (NumberFormatException e) {
             Alert alert = new Alert(Alert.AlertType.WARNING);
@@ -212,6 +642,10 @@ public class MainViewController {
 
     @FXML
     public void onAddCategoryClicked() {
+        FxHandlerEvent.trace("onAddCategoryClicked", this::addCategory);
+    }
+
+    private void addCategory() {
         TextInputDialog dialog = new TextInputDialog();
         dialog.setTitle("Add Category");
         dialog.setHeaderText("Enter new category name:");
@@ -242,14 +676,57 @@ public class MainViewController {
             }
         }
 
-        movieService.addCategory(name);
+        runInBackground(movieService.addCategoryAsync(name), ignored -> { });
+    }
 
-        movieService.loadCategories();
-        categoryListView.getItems().setAll(movieService.getCategories());
+    // The list and every movie show the new name as soon as the service fires CATEGORY_UPDATED.
+    @FXML
+    public void onRenameCategoryClicked() {
+        FxHandlerEvent.trace("onRenameCategoryClicked", this::renameCategory);
+    }
+
+    private void renameCategory() {
+        Category selected = categoryListView.getSelectionModel().getSelectedItem();
+        if (selected == null) {
+            Alert alert = new Alert(Alert.AlertType.INFORMATION);
+            alert.setTitle("No category selected");
+            alert.setHeaderText(null);
+            alert.setContentText("Please select a category to rename.");
+            alert.showAndWait();
+            return;
+        }
+
+        TextInputDialog dialog = new TextInputDialog(selected.getName());
+        dialog.setTitle("Rename Category");
+        dialog.setHeaderText("Enter the new name for " + selected.getName() + ":");
+        dialog.setContentText("Name:");
+
+        Optional<String> result = dialog.showAndWait();
+        if (result.isEmpty()) return;
+
+        String name = result.get().trim();
+        if (name.isEmpty() || name.equals(selected.getName())) return;
+
+        for (Category c : movieService.getCategories()) {
+            if (c != selected && c.getName().equalsIgnoreCase(name)) {
+                Alert alert = new Alert(Alert.AlertType.INFORMATION);
+                alert.setTitle("Duplicate category");
+                alert.setHeaderText(null);
+                alert.setContentText("A category with this name already exists.");
+                alert.showAndWait();
+                return;
+            }
+        }
+
+        runInBackground(movieService.renameCategoryAsync(selected, name), ignored -> { });
     }
 
     @FXML
     public void onDeleteCategoryClicked() {
+        FxHandlerEvent.trace("onDeleteCategoryClicked", this::deleteCategory);
+    }
+
+    private void deleteCategory() {
         Category selected = categoryListView.getSelectionModel().getSelectedItem();
         if (selected == null) {
             Alert alert = new Alert(Alert.AlertType.INFORMATION);
@@ -260,21 +737,36 @@ public class MainViewController {
             return;
         }
 
-        movieService.removeCategory(selected);
-
-        movieService.loadCategories();
-        categoryListView.getItems().setAll(movieService.getCategories());
+        runInBackground(movieService.removeCategoryAsync(selected), ignored -> { });
+    }
 
-        movieService.loadMovies();
-        movieListView.getItems().setAll(movieService.getMovies());
+    // Latency, row and error counts per DAO call and service operation, the same numbers JMX shows.
+    @FXML
+    public void onDiagnosticsClicked() {
+        FxHandlerEvent.trace("onDiagnosticsClicked", this::showDiagnostics);
+    }
 
-        if (!movieListView.getItems().isEmpty()) {
-            movieListView.getSelectionModel().selectFirst();
-        }
+    private void showDiagnostics() {
+        TextArea report = new TextArea(Metrics.report());
+        report.setEditable(false);
+        report.setStyle("-fx-font-family: monospace;");
+        report.setPrefSize(900, 400);
+
+        ButtonType reset = new ButtonType("Reset");
+        Alert alert = new Alert(Alert.AlertType.INFORMATION, "", reset, ButtonType.CLOSE);
+        alert.setTitle("Diagnostics");
+        alert.setHeaderText("Timings since start or since the last reset");
+        alert.getDialogPane().setContent(report);
+        alert.setResizable(true);
+        alert.showAndWait().filter(reset::equals).ifPresent(button -> Metrics.resetAll());
     }
 
     @FXML
     public void onPlayClicked() {
+        FxHandlerEvent.trace("onPlayClicked", this::playSelectedMovie);
+    }
+
+    private void playSelectedMovie() {
         Movie selected = movieListView.getSelectionModel().getSelectedItem();
         if (selected == null) {
             Alert alert = new Alert(Alert.AlertType.INFORMATION);
@@ -295,16 +787,20 @@ public class MainViewController {
             return;
         }
 
-        File file = new File(path);
-        if (!file.exists()) {
-            Alert alert = new Alert(Alert.AlertType.ERROR);
-            alert.setTitle("File not found");
-            alert.setHeaderText(null);
-            alert.setContentText("The file could not be found:\n" + path);
-            alert.showAndWait();
-            return;
-        }
+        runInBackground(movieService.fileExistsAsync(selected), exists -> {
+            if (!exists) {
+                Alert alert = new Alert(Alert.AlertType.ERROR);
+                alert.setTitle("File not found");
+                alert.setHeaderText(null);
+                alert.setContentText("The file could not be found:\n" + path);
+                alert.showAndWait();
+                return;
+            }
+            openMovie(selected, new File(path));
+        });
+    }
 
+    private void openMovie(Movie selected, File file) {
         try {
             if (!Desktop.isDesktopSupported()) {
                 throw new UnsupportedOperationException("Desktop integration is not supported on this platform.");
@@ -312,8 +808,7 @@ public class MainViewController {
 
             Desktop.getDesktop().open(file);
 
-            movieService.markAsViewed(selected);
-            movieListView.refresh();
+            runInBackground(movieService.markAsViewedAsync(selected), ignored -> { });
 
         } catch (IOException | UnsupportedOperationException e) {
             Alert alert = new Alert(Alert.AlertType.ERROR);
@@ -0,0 +1,101 @@
+package gui;
+
+import bll.MovieOrder;
+import bll.MovieQuery;
+import bll.MovieService;
+import javafx.application.Platform;
+import javafx.scene.control.ListView;
+import model.Movie;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// Fills a ListView one keyset page at a time while the full catalog is still loading, so the first screen
+// needs one small query. With a query it pages through the database search instead, for catalogs too big
+// to load. Either way the next page starts after the last movie shown, so rows added or deleted meanwhile
+// do not shift the pages. The cells report which index they show; once the user gets within
+// prefetchDistance of the end, the next page is requested. Only used on the FX thread.
+class MoviePager {
+
+    private final ListView<Movie> listView;
+    private final MovieService movieService;
+    private final MovieOrder order;
+    private final int pageSize;
+    private final int prefetchDistance;
+
+    private boolean active;
+    private boolean loading;
+    private boolean exhausted;
+    private MovieQuery query;   // null pages through all movies
+    private int generation;     // bumped by every start, so pages of an earlier start are dropped
+
+    MoviePager(ListView<Movie> listView, MovieService movieService, MovieOrder order, int pageSize, int prefetchDistance) {
+        this.listView = listView;
+        this.movieService = movieService;
+        this.order = order;
+        this.pageSize = pageSize;
+        this.prefetchDistance = prefetchDistance;
+    }
+
+    void start() {
+        start(null);
+    }
+
+    void start(MovieQuery query) {
+        this.query = query;
+        generation++;
+        loading = false;
+        active = true;
+        exhausted = false;
+        listView.getItems().clear();
+        loadNextPage();
+    }
+
+    // After this the list belongs to someone else; pages still in flight are dropped.
+    void stop() {
+        active = false;
+    }
+
+    // True while it pages through all movies, not through a search.
+    boolean isPagingAll() {
+        return active && query == null;
+    }
+
+    // Called by the cells for every index they render.
+    void cellShown(int index) {
+        if (active && index >= listView.getItems().size() - prefetchDistance) {
+            loadNextPage();
+        }
+    }
+
+    private void loadNextPage() {
+        if (loading || exhausted) return;
+        loading = true;
+
+        List<Movie> items = listView.getItems();
+        Movie last = items.isEmpty() ? null : items.get(items.size() - 1);
+
+        int requestGeneration = generation;
+        CompletableFuture<List<Movie>> request = (query == null)
+                ? movieService.loadPageAsync(order, last, pageSize)
+                : movieService.searchAsync(query, order, last, pageSize);
+
+        request.whenComplete((page, error) -> Platform.runLater(() -> {
+            if (requestGeneration != generation) return;   // restarted meanwhile
+            loading = false;
+            if (!active) return;
+            if (error != null) {
+                // the full load reports database problems, paging just stops
+                exhausted = true;
+                return;
+            }
+
+            boolean first = listView.getItems().isEmpty();
+            listView.getItems().addAll(page);
+            exhausted = page.size() < pageSize;
+            if (first && !page.isEmpty()) {
+                listView.getSelectionModel().selectFirst();
+            }
+        }));
+    }
+}
@@ -0,0 +1,24 @@
+package metrics;
+
+import java.util.function.LongSupplier;
+
+// A value read on demand, e.g. the number of busy pool connections.
+public class Gauge implements GaugeMXBean {
+
+    private final String name;
+    private final LongSupplier value;
+
+    Gauge(String name, LongSupplier value) {
+        this.name = name;
+        this.value = value;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getValue() {
+        return value.getAsLong();
+    }
+}
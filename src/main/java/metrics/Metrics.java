@@ -0,0 +1,91 @@
+package metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+// Process wide registry of timers and gauges. Everything registered here is also published as an MXBean
+// under the PrivateMovieCollection domain, so it can be watched with jconsole on a slow workstation.
+public final class Metrics {
+
+    private static final String DOMAIN = "PrivateMovieCollection";
+
+    private static final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private static final Map<String, Gauge> gauges = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    public static Timer timer(String name) {
+        return timers.computeIfAbsent(name, n -> {
+            Timer timer = new Timer(n);
+            register("Timer", n, timer);
+            return timer;
+        });
+    }
+
+    // Replaces an earlier gauge with the same name.
+    public static void gauge(String name, LongSupplier value) {
+        Gauge gauge = new Gauge(name, value);
+        gauges.put(name, gauge);
+        register("Gauge", name, gauge);
+    }
+
+    public static List<Timer> timers() {
+        List<Timer> result = new ArrayList<>(timers.values());
+        result.sort(Comparator.comparing(Timer::getName));
+        return result;
+    }
+
+    public static List<Gauge> gauges() {
+        List<Gauge> result = new ArrayList<>(gauges.values());
+        result.sort(Comparator.comparing(Gauge::getName));
+        return result;
+    }
+
+    public static void resetAll() {
+        for (Timer timer : timers.values()) {
+            timer.reset();
+        }
+    }
+
+    // Plain text table of everything recorded so far, for the diagnostics dialog and bug reports.
+    public static String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-40s %8s %6s %9s %9s %9s %9s %9s %9s%n",
+                "operation", "calls", "errors", "rows", "mean ms", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+        for (Timer t : timers()) {
+            if (t.getCount() == 0) continue;
+            sb.append(String.format("%-40s %8d %6d %9d %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    t.getName(), t.getCount(), t.getErrorCount(), t.getRowCount(), t.getMeanMillis(),
+                    t.getP50Millis(), t.getP95Millis(), t.getP99Millis(), t.getMaxMillis()));
+        }
+        if (!gauges.isEmpty()) {
+            sb.append(System.lineSeparator());
+            for (Gauge g : gauges()) {
+                sb.append(String.format("%-40s %8d%n", g.getName(), g.getValue()));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void register(String type, String name, Object bean) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(bean, objectName);
+        } catch (JMException e) {
+            e.printStackTrace();   // the numbers are still recorded, just not visible over JMX
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// Flight Recorder event for every timed operation (DAO queries, connection acquisition, service calls).
+// metrics.Timer only creates one while a recording with this event enabled is running.
+@Name("pmc.Operation")
+@Label("Operation")
+@Category({"Private Movie Collection", "Operations"})
+@Description("A DAO query or service operation, timed by metrics.Timer")
+class OperationEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Rows")
+    long rows;
+
+    @Label("Failed")
+    boolean failed;
+}
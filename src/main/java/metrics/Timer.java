@@ -0,0 +1,182 @@
+package metrics;
+
+import jdk.jfr.EventType;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Latency histogram plus call, row and error counters for one operation.
+// Buckets are log-linear in microseconds (four per power of two), so percentiles are within 25%
+// and recording is a few atomic adds without locks or allocation.
+public class Timer implements TimerMXBean {
+
+    private static final int LINEAR = 16;
+    private static final int BUCKETS = LINEAR + 4 * (64 - 4);
+
+    private final String name;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    Timer(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Sample start() {
+        return new Sample(this, System.nanoTime());
+    }
+
+    public void record(long nanos, long rowCount, boolean failed) {
+        count.increment();
+        if (failed) errors.increment();
+        if (rowCount > 0) rows.add(rowCount);
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+        buckets.incrementAndGet(bucket(TimeUnit.NANOSECONDS.toMicros(nanos)));
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getRowCount() {
+        return rows.sum();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        long n = count.sum();
+        return n == 0 ? 0 : totalNanos.sum() / 1e6 / n;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return percentileMillis(0.50);
+    }
+
+    @Override
+    public double getP95Millis() {
+        return percentileMillis(0.95);
+    }
+
+    @Override
+    public double getP99Millis() {
+        return percentileMillis(0.99);
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return maxNanos.get() / 1e6;
+    }
+
+    @Override
+    public void reset() {
+        count.reset();
+        errors.reset();
+        rows.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+    }
+
+    // Upper edge of the bucket holding the given percentile, capped at the real maximum.
+    private double percentileMillis(double p) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) return 0;
+
+        long rank = (long) Math.ceil(p * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upperMicros(i) / 1e3, getMaxMillis());
+            }
+        }
+        return getMaxMillis();
+    }
+
+    private static int bucket(long micros) {
+        if (micros < LINEAR) return (int) Math.max(0, micros);
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) (micros >>> (exponent - 2)) & 3;
+        return LINEAR + (exponent - 4) * 4 + sub;
+    }
+
+    private static long upperMicros(int bucket) {
+        if (bucket < LINEAR) return bucket;
+        int exponent = (bucket - LINEAR) / 4 + 4;
+        int sub = (bucket - LINEAR) % 4;
+        long width = 1L << (exponent - 2);
+        return (4 + sub) * width + width - 1;
+    }
+
+    // One timed call. Counted as an error unless success() was called before close(),
+    // so an exception thrown out of a try-with-resources block shows up without a catch.
+    // Also emitted as a pmc.Operation Flight Recorder event while a recording has that event enabled.
+    public static final class Sample implements AutoCloseable {
+        private static final EventType OPERATION = EventType.getEventType(OperationEvent.class);
+
+        private final Timer timer;
+        private final long start;
+        private final OperationEvent event;   // null when no recording wants it, so the hot path allocates one object
+        private long rows;
+        private boolean succeeded;
+
+        private Sample(Timer timer, long start) {
+            this.timer = timer;
+            this.start = start;
+            if (OPERATION.isEnabled()) {
+                event = new OperationEvent();
+                event.begin();
+            } else {
+                event = null;
+            }
+        }
+
+        public void success() {
+            succeeded = true;
+        }
+
+        public void success(long rowCount) {
+            rows = rowCount;
+            succeeded = true;
+        }
+
+        @Override
+        public void close() {
+            timer.record(System.nanoTime() - start, rows, !succeeded);
+
+            if (event == null) return;
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = timer.name;
+                event.rows = rows;
+                event.failed = !succeeded;
+                event.commit();
+            }
+        }
+    }
+}
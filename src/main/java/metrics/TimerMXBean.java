@@ -0,0 +1,23 @@
+package metrics;
+
+// What jconsole / VisualVM show for a timer under PrivateMovieCollection:type=Timer.
+public interface TimerMXBean {
+
+    long getCount();
+
+    long getErrorCount();
+
+    long getRowCount();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP95Millis();
+
+    double getP99Millis();
+
+    double getMaxMillis();
+
+    void reset();
+}
@@ -4,11 +4,11 @@ import java.util.Objects;
 
 public class Category {
     private int id;
-    private String name;
+    private volatile String name;   // renamed in place, see CategoryRegistry
 
     @Override
     public boolean equals(Object o) {
-        if (this == o) return true;
+        if (this == o) return true;   // the usual case, categories come from a CategoryRegistry
         if (!(o instanceof Category)) return false;
         Category other = (Category) o;
         return id == other.id;
@@ -32,6 +32,10 @@ public class Category {
         return name;
     }
 
+    public void setName (String name) {
+        this.name = name;
+    }
+
     @Override
     public String toString() {
         return name;
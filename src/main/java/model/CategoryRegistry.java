@@ -0,0 +1,52 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Hands out exactly one Category object per id. The DAOs resolve every row through it,
+// so a category linked to thousands of movies exists once and can be compared with ==.
+// Resolving a known id keeps its current name; renames go through rename(), under MovieService's lock.
+public class CategoryRegistry {
+
+    private final Map<Integer, Category> byId = new ConcurrentHashMap<>();
+
+    public Category resolve(int id, String name) {
+        return byId.computeIfAbsent(id, key -> new Category(key, name));
+    }
+
+    // null if the id was never resolved
+    public Category get(int id) {
+        return byId.get(id);
+    }
+
+    // Returns the renamed category, or null if the id is unknown.
+    public Category rename(int id, String name) {
+        Category category = byId.get(id);
+        if (category != null) {
+            category.setName(name);
+        }
+        return category;
+    }
+
+    public void remove(int id) {
+        byId.remove(id);
+    }
+
+    // Forgets every category not in the given list, e.g. after a full reload.
+    public void retainOnly(Collection<Category> categories) {
+        Set<Integer> ids = new HashSet<>();
+        for (Category category : categories) {
+            ids.add(category.getId());
+        }
+        byId.keySet().retainAll(ids);
+    }
+
+    public List<Category> all() {
+        return new ArrayList<>(byId.values());
+    }
+}
@@ -0,0 +1,8 @@
+package model;
+
+// Whether a movie's file was found on disk the last time anyone looked. Not stored in the database.
+public enum FileStatus {
+    UNKNOWN,
+    AVAILABLE,
+    MISSING
+}
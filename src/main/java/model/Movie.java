@@ -4,83 +4,164 @@ import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
+// A movie either holds its own values (fresh from the database) or, once MovieService has put it in
+// its MovieStore, is only a view of one row there. Either way callers use the same getters and setters.
 public class Movie {
 
-    private int id;
-    private String title;
-    private double imdbRating;
-    private double personalRating;
-    private String filePath;
-    private LocalDate lastView;
-
-    private List<Category> categories = new ArrayList<>();
+    private MovieStore store;
+    private int row;
+    // null while attached; volatile so a reader that sees null also sees store and row
+    private volatile Values values;
 
     public Movie(int id, String title, double imdbRating, String filePath) {
-        this.id = id;
-        this.title = title;
-        this.imdbRating = imdbRating;
-        this.filePath = filePath;
-
-        this.personalRating = -1;   // not rated yet
-        this.lastView = null;
+        this.values = new Values(id, title, imdbRating, filePath);
     }
 
 
 
     public boolean hasPersonalRating() {
-        return personalRating >= 0;
+        return getPersonalRating() >= 0;
     }
     public double getPersonalRating() {
-        return personalRating;
+        Values v = values;
+        return v != null ? v.personalRating : store.personalRating(row);
     }
 
     public int getId() {
-        return id;
+        Values v = values;
+        return v != null ? v.id : store.id(row);
     }
     public String getTitle() {
-        return title;
+        Values v = values;
+        return v != null ? v.title : store.title(row);
+    }
+    public void setTitle(String title) {
+        Values v = values;
+        if (v != null) v.title = title;
+        else store.setTitle(row, title);
     }
 
     public double getImdbRating() {
-        return imdbRating;
+        Values v = values;
+        return v != null ? v.imdbRating : store.imdbRating(row);
     }
 
-    public String getFilePath() { return filePath; }
-    public void setFilePath(String filePath) { this.filePath = filePath; }
+    public String getFilePath() {
+        Values v = values;
+        return v != null ? v.filePath : store.filePath(row);
+    }
+    public void setFilePath(String filePath) {
+        Values v = values;
+        if (v != null) v.filePath = filePath;
+        else store.setFilePath(row, filePath);
+    }
 
     public LocalDate getLastView() {
-        return lastView;
+        Values v = values;
+        return v != null ? v.lastView : store.lastView(row);
     }
+    // Read-only once the movie is in a store; use addCategory and removeCategory to change it.
     public List<Category> getCategories() {
-        return categories;
+        Values v = values;
+        return v != null ? v.categories : store.categories(row);
     }
     public void setImdbRating(double imdbRating) {
-        this.imdbRating = imdbRating;
+        Values v = values;
+        if (v != null) v.imdbRating = imdbRating;
+        else store.setImdbRating(row, imdbRating);
     }
     public void setPersonalRating(double personalRating) {
-        this.personalRating = personalRating;
+        Values v = values;
+        if (v != null) v.personalRating = personalRating;
+        else store.setPersonalRating(row, personalRating);
     }
     public void setFileLink(String fileLink) {
-        this.filePath = fileLink;
+        setFilePath(fileLink);
     }
     public void setLastView(LocalDate lastView) {
-        this.lastView = lastView;
+        Values v = values;
+        if (v != null) v.lastView = lastView;
+        else store.setLastView(row, lastView);
+    }
+    public FileStatus getFileStatus() {
+        Values v = values;
+        return v != null ? v.fileStatus : store.fileStatus(row);
+    }
+    public void setFileStatus(FileStatus fileStatus) {
+        Values v = values;
+        if (v != null) v.fileStatus = fileStatus;
+        else store.setFileStatus(row, fileStatus);
     }
     public void addCategory(Category category) {
-        categories.add(category);
+        Values v = values;
+        // a set in both forms: the store keeps one bit per category
+        if (v != null) {
+            if (!v.categories.contains(category)) v.categories.add(category);
+        } else {
+            store.addCategory(row, category);
+        }
     }
     public void removeCategory(Category category) {
-        categories.remove(category);
+        Values v = values;
+        if (v != null) v.categories.remove(category);
+        else store.removeCategory(row, category);
+    }
+    public boolean hasCategory(Category category) {
+        Values v = values;
+        return v != null ? v.categories.contains(category) : store.hasCategory(row, category);
     }
 
     @Override
     public String toString() {
-        String imdbText = String.format("IMDb: %.1f", imdbRating);
+        String imdbText = String.format("IMDb: %.1f", getImdbRating());
 
         if (hasPersonalRating()) {
-            return title + "  |  " + imdbText + "  |  Personal Rating: " + personalRating;
+            return getTitle() + "  |  " + imdbText + "  |  Personal Rating: " + getPersonalRating();
         } else {
-            return title + "  |  " + imdbText;
+            return getTitle() + "  |  " + imdbText;
+        }
+    }
+
+    // ---- used by MovieStore ----
+
+    boolean isAttachedTo(MovieStore store) {
+        return values == null && this.store == store;
+    }
+
+    int row() {
+        return row;
+    }
+
+    Values detachedValues() {
+        return values;
+    }
+
+    void attach(MovieStore store, int row) {
+        this.store = store;
+        this.row = row;
+        this.values = null;
+    }
+
+    // the store reference is kept on purpose: a reader that already saw values == null can still finish its read
+    void detach(Values values) {
+        this.values = values;
+    }
+
+    static final class Values {
+        final int id;
+        String title;
+        double imdbRating;
+        double personalRating = -1;   // not rated yet
+        String filePath;
+        LocalDate lastView;
+        FileStatus fileStatus = FileStatus.UNKNOWN;
+        final List<Category> categories = new ArrayList<>();
+
+        Values(int id, String title, double imdbRating, String filePath) {
+            this.id = id;
+            this.title = title;
+            this.imdbRating = imdbRating;
+            this.filePath = filePath;
         }
     }
 
@@ -0,0 +1,223 @@
+package model;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Column-wise storage for the movies of a catalog: one primitive array per field instead of one object graph
+// per movie. A Movie attached here keeps only a reference to the store and its row number.
+// Dates are stored as epoch days, file paths as a dictionary-encoded folder plus the file name, and category
+// membership as one BitSet of rows per category. Rows of detached movies are reused.
+// Not thread safe; MovieService only changes it while holding its lock.
+public class MovieStore {
+
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final int NO_FOLDER = -1;
+    private static final FileStatus[] FILE_STATUSES = FileStatus.values();
+
+    private int[] ids;
+    private String[] titles;
+    private double[] imdbRatings;
+    private double[] personalRatings;
+    private int[] lastViewDays;
+    private int[] folders;
+    private String[] fileNames;
+    private byte[] fileStatuses;
+
+    private final StringDictionary folderNames = new StringDictionary();
+
+    private final List<Category> categoryByCode = new ArrayList<>();
+    private final Map<Category, Integer> categoryCodes = new HashMap<>();
+    private final List<BitSet> categoryRows = new ArrayList<>();
+
+    private int rowCount;   // rows handed out so far, including free ones
+    private int[] freeRows = new int[0];
+    private int freeCount;
+
+    public MovieStore() {
+        this(16);
+    }
+
+    public MovieStore(int capacity) {
+        capacity = Math.max(16, capacity);
+        ids = new int[capacity];
+        titles = new String[capacity];
+        imdbRatings = new double[capacity];
+        personalRatings = new double[capacity];
+        lastViewDays = new int[capacity];
+        folders = new int[capacity];
+        fileNames = new String[capacity];
+        fileStatuses = new byte[capacity];
+    }
+
+    public int size() {
+        return rowCount - freeCount;
+    }
+
+    // Moves the movie's values into a row; the movie object becomes a view of it. Does nothing if already attached.
+    public void attach(Movie movie) {
+        if (movie.isAttachedTo(this)) return;
+
+        Movie.Values values = movie.detachedValues();
+        int row = allocateRow();
+        ids[row] = values.id;
+        titles[row] = values.title;
+        imdbRatings[row] = values.imdbRating;
+        personalRatings[row] = values.personalRating;
+        lastViewDays[row] = values.lastView == null ? NO_DATE : (int) values.lastView.toEpochDay();
+        setFilePath(row, values.filePath);
+        fileStatuses[row] = (byte) values.fileStatus.ordinal();
+        for (Category category : values.categories) {
+            addCategory(row, category);
+        }
+        movie.attach(this, row);
+    }
+
+    // Copies the row back into the movie, which then stands on its own again, and frees the row.
+    public void detach(Movie movie) {
+        if (!movie.isAttachedTo(this)) return;
+
+        int row = movie.row();
+        movie.detach(readValues(row));
+
+        titles[row] = null;
+        fileNames[row] = null;
+        for (BitSet rows : categoryRows) {
+            rows.clear(row);
+        }
+        if (freeCount == freeRows.length) {
+            freeRows = Arrays.copyOf(freeRows, Math.max(16, freeCount * 2));
+        }
+        freeRows[freeCount++] = row;
+    }
+
+    // ---- row access, used by Movie ----
+
+    int id(int row) {
+        return ids[row];
+    }
+
+    String title(int row) {
+        return titles[row];
+    }
+
+    void setTitle(int row, String title) {
+        titles[row] = title;
+    }
+
+    double imdbRating(int row) {
+        return imdbRatings[row];
+    }
+
+    void setImdbRating(int row, double rating) {
+        imdbRatings[row] = rating;
+    }
+
+    double personalRating(int row) {
+        return personalRatings[row];
+    }
+
+    void setPersonalRating(int row, double rating) {
+        personalRatings[row] = rating;
+    }
+
+    LocalDate lastView(int row) {
+        int day = lastViewDays[row];
+        return day == NO_DATE ? null : LocalDate.ofEpochDay(day);
+    }
+
+    void setLastView(int row, LocalDate lastView) {
+        lastViewDays[row] = lastView == null ? NO_DATE : (int) lastView.toEpochDay();
+    }
+
+    String filePath(int row) {
+        int folder = folders[row];
+        if (folder == NO_FOLDER) return fileNames[row];
+        return folderNames.decode(folder) + fileNames[row];
+    }
+
+    void setFilePath(int row, String filePath) {
+        int split = (filePath == null) ? -1 : Math.max(filePath.lastIndexOf('/'), filePath.lastIndexOf('\\'));
+        if (split < 0) {
+            folders[row] = NO_FOLDER;
+            fileNames[row] = filePath;
+        } else {
+            folders[row] = folderNames.encode(filePath.substring(0, split + 1));
+            fileNames[row] = filePath.substring(split + 1);
+        }
+    }
+
+    FileStatus fileStatus(int row) {
+        return FILE_STATUSES[fileStatuses[row]];
+    }
+
+    void setFileStatus(int row, FileStatus fileStatus) {
+        fileStatuses[row] = (byte) fileStatus.ordinal();
+    }
+
+    List<Category> categories(int row) {
+        List<Category> result = new ArrayList<>(2);
+        for (int code = 0; code < categoryRows.size(); code++) {
+            if (categoryRows.get(code).get(row)) {
+                result.add(categoryByCode.get(code));
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    // One bit test, without building the category list.
+    boolean hasCategory(int row, Category category) {
+        Integer code = categoryCodes.get(category);
+        return code != null && categoryRows.get(code).get(row);
+    }
+
+    void addCategory(int row, Category category) {
+        Integer code = categoryCodes.get(category);
+        if (code == null) {
+            code = categoryByCode.size();
+            categoryByCode.add(category);
+            categoryCodes.put(category, code);
+            categoryRows.add(new BitSet());
+        }
+        categoryRows.get(code).set(row);
+    }
+
+    void removeCategory(int row, Category category) {
+        Integer code = categoryCodes.get(category);
+        if (code != null) {
+            categoryRows.get(code).clear(row);
+        }
+    }
+
+    private Movie.Values readValues(int row) {
+        Movie.Values values = new Movie.Values(ids[row], titles[row], imdbRatings[row], filePath(row));
+        values.personalRating = personalRatings[row];
+        values.lastView = lastView(row);
+        values.fileStatus = fileStatus(row);
+        values.categories.addAll(categories(row));
+        return values;
+    }
+
+    private int allocateRow() {
+        if (freeCount > 0) {
+            return freeRows[--freeCount];
+        }
+        if (rowCount == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            titles = Arrays.copyOf(titles, capacity);
+            imdbRatings = Arrays.copyOf(imdbRatings, capacity);
+            personalRatings = Arrays.copyOf(personalRatings, capacity);
+            lastViewDays = Arrays.copyOf(lastViewDays, capacity);
+            folders = Arrays.copyOf(folders, capacity);
+            fileNames = Arrays.copyOf(fileNames, capacity);
+            fileStatuses = Arrays.copyOf(fileStatuses, capacity);
+        }
+        return rowCount++;
+    }
+}
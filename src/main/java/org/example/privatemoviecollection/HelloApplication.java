@@ -1,5 +1,8 @@
 package org.example.privatemoviecollection;
 
+import dal.ConnectionManager;
+import gui.FxWatchdog;
+import gui.MainViewController;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
@@ -8,15 +11,35 @@ import javafx.stage.Stage;
 import java.io.IOException;
 
 public class HelloApplication extends Application {
+
+    private MainViewController controller;
+    private FxWatchdog watchdog;
+
     @Override
     public void start(Stage stage) throws IOException {
+        // started before the view is loaded so a slow initialize() is caught too
+        watchdog = FxWatchdog.fromSystemProperties();
+        watchdog.start();
+
         FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("/gui/MainView.fxml"));
         Scene scene = new Scene(fxmlLoader.load());
+        controller = fxmlLoader.getController();
         stage.setTitle("Private Movie Collection");
         stage.setScene(scene);
         stage.show();
     }
 
+    @Override
+    public void stop() {
+        if (watchdog != null) {
+            watchdog.stop();
+        }
+        if (controller != null) {
+            controller.shutdown();
+        }
+        ConnectionManager.getInstance().shutdown();
+    }
+
 }
 
 
@@ -4,11 +4,12 @@ import bll.MovieService;
 import model.Category;
 import model.Movie;
 
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 
 public class TestLogic {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws SQLException {
 
         MovieService service = new MovieService();
 
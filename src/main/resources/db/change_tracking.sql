@@ -0,0 +1,11 @@
+-- Enables SQL Server change tracking for the tables MovieService keeps in memory.
+-- Run once per database; MovieService falls back to full reloads while it is not enabled.
+
+ALTER DATABASE PrivateMovieCollection1
+SET CHANGE_TRACKING = ON (CHANGE_RETENTION = 7 DAYS, AUTO_CLEANUP = ON);
+GO
+
+ALTER TABLE dbo.Movie ENABLE CHANGE_TRACKING;
+ALTER TABLE dbo.Category ENABLE CHANGE_TRACKING;
+ALTER TABLE dbo.CatMovie ENABLE CHANGE_TRACKING;
+GO
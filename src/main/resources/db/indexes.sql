@@ -0,0 +1,6 @@
+-- Supports MovieDAO.getPageByTitle: a seek on (title, id) instead of sorting the whole table for every page.
+-- MovieDAO.search seeks it too for titles starting with the search text.
+-- Paging by id uses the primary key. Run once per database.
+
+CREATE INDEX IX_Movie_Title ON dbo.Movie (title, id);
+GO
@@ -0,0 +1,108 @@
+package bll;
+
+import dal.ConnectionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileAvailabilityScannerTest {
+
+    // the polling WatchService on some platforms only looks every few seconds
+    private static final long WAIT_SECONDS = 30;
+
+    @TempDir
+    Path library;
+
+    private final MovieService service = new MovieService(unreachableDatabase());
+    private final BlockingQueue<Path> newFiles = new LinkedBlockingQueue<>();
+    private final FileAvailabilityScanner scanner = new FileAvailabilityScanner(service, newFiles::add);
+
+    @AfterEach
+    void stop() {
+        scanner.stop();
+        service.shutdown();
+    }
+
+    @Test
+    void videosInNewSubfoldersOfALibraryRootAreOffered() throws IOException, InterruptedException {
+        Files.createDirectories(library.resolve("old"));
+        scanner.start();
+        scanner.watchTree(library);
+        awaitWatched();
+
+        Path season = Files.createDirectories(library.resolve("Series").resolve("Season 1"));
+        Path episode = Files.createFile(season.resolve("Episode 1.mkv"));
+        Path older = Files.createFile(library.resolve("old").resolve("Alien.AVI"));
+        Files.createFile(season.resolve("notes.txt"));
+
+        // a file can be both seen by the walk of its new folder and reported by the watch; the GUI keeps a set
+        Set<Path> offered = new HashSet<>();
+        while (!offered.containsAll(Set.of(episode, older))) {
+            offered.add(next());
+        }
+        Path late;
+        while ((late = newFiles.poll(1, TimeUnit.SECONDS)) != null) {
+            offered.add(late);
+        }
+        assertEquals(Set.of(episode, older), offered);   // not the text file
+    }
+
+    @Test
+    void videoExtensionsIgnoreCase() {
+        assertTrue(VideoFiles.isVideo(Path.of("Heat.MKV")));
+        assertTrue(VideoFiles.isVideo(Path.of("dir", "Heat.1995.mpeg")));
+        assertFalse(VideoFiles.isVideo(Path.of("mkv")));
+        assertFalse(VideoFiles.isVideo(Path.of("Heat.srt")));
+    }
+
+    private Path next() throws InterruptedException {
+        Path file = newFiles.poll(WAIT_SECONDS, TimeUnit.SECONDS);
+        assertTrue(file != null, "no new file reported");
+        return file;
+    }
+
+    // watchTree registers in the background; a marker file shows when the subfolder is watched
+    private void awaitWatched() throws IOException, InterruptedException {
+        Path marker = library.resolve("old").resolve("marker.mp4");
+        for (int attempt = 0; attempt < 100; attempt++) {
+            Files.deleteIfExists(marker);
+            Files.createFile(marker);
+            if (newFiles.poll(300, TimeUnit.MILLISECONDS) != null) {
+                Files.delete(marker);
+                Thread.sleep(300);
+                newFiles.clear();
+                return;
+            }
+        }
+        throw new AssertionError("library root was never watched");
+    }
+
+    private static ConnectionManager unreachableDatabase() {
+        DataSource dataSource = (DataSource) Proxy.newProxyInstance(FileAvailabilityScannerTest.class.getClassLoader(),
+                new Class<?>[]{DataSource.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("getConnection")) {
+                        throw new SQLException("No database in this test", "08001");
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        return new ConnectionManager(dataSource, new ConnectionManager.PoolConfig(
+                0, 2, Duration.ofMinutes(1), Duration.ofSeconds(1), Duration.ofSeconds(5), 1, 0));
+    }
+}
@@ -0,0 +1,63 @@
+package bll;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class FuzzyTitleSearchTest {
+
+    @Test
+    void swappedNeighboursCountAsOneEdit() {
+        // plain Levenshtein needs two edits for a transposition
+        assertEquals(1, FuzzyTitleSearch.distance("godfahter", "godfather", 3));
+        assertEquals(1, FuzzyTitleSearch.distance("ab", "ba", 3));
+    }
+
+    @Test
+    void optimalStringAlignmentEditsNoSubstringTwice() {
+        // unrestricted Damerau-Levenshtein gives 2 (swap, then insert between the swapped letters)
+        assertEquals(3, FuzzyTitleSearch.distance("ca", "abc", 5));
+    }
+
+    @Test
+    void distanceStopsAboveTheBound() {
+        assertEquals(0, FuzzyTitleSearch.distance("alien", "alien", 2));
+        assertEquals(3, FuzzyTitleSearch.distance("alien", "aliens are here", 2));
+        assertEquals(3, FuzzyTitleSearch.distance("abcdef", "uvwxyz", 2));
+    }
+
+    @Test
+    void foldDropsAccentsExtensionsAndReleaseTags() {
+        assertEquals("amelie 2001", FuzzyTitleSearch.fold("Amélie.2001.1080p.BluRay.x264.mp4"));
+        assertEquals("the matrix", FuzzyTitleSearch.fold("The_Matrix [Remastered].MKV"));
+    }
+
+    @Test
+    void findsTitleDespiteTransposedLetters() {
+        FuzzyTitleSearch search = new FuzzyTitleSearch();
+        search.add(0, "The Godfather");
+        search.add(1, "The Godfather Part II");
+        search.add(2, "Goodfellas");
+        search.add(3, "Father of the Bride");
+
+        List<FuzzyTitleSearch.Match> matches = search.search("godfahter", 3);
+
+        assertFalse(matches.isEmpty());
+        assertEquals(0, matches.get(0).slot());
+    }
+
+    @Test
+    void removedTitlesAreNotFound() {
+        FuzzyTitleSearch search = new FuzzyTitleSearch();
+        search.add(0, "Alien");
+        search.add(1, "Aliens");
+        search.remove(0);
+
+        for (FuzzyTitleSearch.Match match : search.search("alien", 5)) {
+            assertEquals(1, match.slot());
+        }
+    }
+}
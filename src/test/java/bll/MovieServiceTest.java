@@ -0,0 +1,139 @@
+package bll;
+
+import dal.CatalogSnapshot;
+import dal.ConnectionManager;
+import model.Category;
+import model.CategoryRegistry;
+import model.Movie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MovieServiceTest {
+
+    private final Category drama = new Category(1, "Drama");
+    private final Category comedy = new Category(2, "Comedy");
+
+    // never loaded, so it behaves like a catalog too big for memory
+    private final MovieService service = new MovieService(unreachableDatabase());
+
+    @AfterEach
+    void shutDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void pagedMoviesAreMatchedOnTheirOwnValues() {
+        Movie heat = new Movie(1, "Heat", 8.3, null);
+        heat.addCategory(drama);
+
+        assertTrue(service.matches(new MovieQuery("he", 8.0, 9.0, List.of(drama), CategoryMatch.ALL), heat));
+        assertFalse(service.matches(new MovieQuery(null, 8.5, null, null, null), heat));
+        assertFalse(service.matches(new MovieQuery(null, null, 8.0, null, null), heat));
+    }
+
+    @Test
+    void pagedMoviesMatchTitlesFromTheirStartLikeTheDatabase() {
+        Movie godfather = new Movie(1, "The Godfather", 9.2, null);
+
+        assertTrue(service.matches(new MovieQuery("the god", null, null, null, null), godfather));
+        assertFalse(service.matches(new MovieQuery("godfather", null, null, null, null), godfather));
+    }
+
+    @Test
+    void pagedMoviesMatchAnyOrAllCategories() {
+        Movie heat = new Movie(1, "Heat", 8.3, null);
+        heat.addCategory(drama);
+
+        assertTrue(service.matches(new MovieQuery(null, null, null, List.of(drama, comedy), CategoryMatch.ANY), heat));
+        assertFalse(service.matches(new MovieQuery(null, null, null, List.of(drama, comedy), CategoryMatch.ALL), heat));
+        assertFalse(service.matches(new MovieQuery(null, null, null, List.of(comedy), CategoryMatch.ANY), heat));
+    }
+
+    @Test
+    void failedWriteLeavesTheMovieUnchanged() {
+        Movie heat = new Movie(1, "Heat", 8.3, null);
+        heat.addCategory(drama);
+        List<CatalogEvent> events = new ArrayList<>();
+        service.addListener(events::add);
+
+        assertThrows(SQLException.class, () -> service.addCategoryToMovie(heat, comedy));
+        assertThrows(SQLException.class, () -> service.removeCategoryFromMovie(heat, drama));
+
+        assertEquals(List.of(drama), heat.getCategories());
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void loadedCatalogPagesNewestFirstAfterTheLastMovieShown(@TempDir Path dir) throws IOException, SQLException {
+        // stored in insert order, which is not id order
+        Path file = dir.resolve("catalog.snapshot");
+        CatalogSnapshot.write(file, CatalogSnapshot.encode(7, List.of(drama),
+                List.of(new Movie(2, "Alien", 8.5, null), new Movie(4, "Heat", 8.3, null),
+                        new Movie(1, "Ronin", 7.2, null), new Movie(5, "Ran", 8.2, null))));
+        MovieService loaded = new MovieService(unreachableDatabase(), file);
+        try {
+            loaded.loadAllAsync().join();
+            MovieQuery all = new MovieQuery(null, 7.0, null, null, null);
+
+            List<Movie> first = loaded.search(all, MovieOrder.NEWEST_FIRST, null, 2);
+            assertEquals(List.of(5, 4), ids(first));
+            assertEquals(List.of(2, 1), ids(loaded.search(all, MovieOrder.NEWEST_FIRST, first.get(1), 2)));
+
+            // the last movie shown was deleted meanwhile: the next page still starts right after it
+            Movie deleted = new Movie(3, "Gone", 7.5, null);
+            assertEquals(List.of(2, 1), ids(loaded.search(all, MovieOrder.NEWEST_FIRST, deleted, 10)));
+        } finally {
+            loaded.shutdown();
+        }
+    }
+
+    @Test
+    void snapshotIsNotSavedWhileRatingsAreStillQueued(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("catalog.snapshot");
+        CatalogSnapshot.write(file, CatalogSnapshot.encode(7, List.of(drama), List.of(new Movie(4, "Heat", 8.3, null))));
+        MovieService loaded = new MovieService(unreachableDatabase(), file);
+        try {
+            loaded.loadAllAsync().join();
+            loaded.setPersonalRating(loaded.getMovies().getFirst(), 9.0);
+
+            // the flush fails with a connection error, so the rating stays queued for another try
+            loaded.saveSnapshotIfChanged();
+
+            Movie saved = CatalogSnapshot.read(file, new CategoryRegistry()).movies().getFirst();
+            assertFalse(saved.hasPersonalRating());
+        } finally {
+            loaded.shutdown();
+        }
+    }
+
+    private static List<Integer> ids(List<Movie> movies) {
+        return movies.stream().map(Movie::getId).toList();
+    }
+
+    private static ConnectionManager unreachableDatabase() {
+        DataSource dataSource = (DataSource) Proxy.newProxyInstance(MovieServiceTest.class.getClassLoader(),
+                new Class<?>[]{DataSource.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("getConnection")) {
+                        throw new SQLException("No database in this test", "08001");
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        return new ConnectionManager(dataSource, new ConnectionManager.PoolConfig(
+                0, 2, Duration.ofMinutes(1), Duration.ofSeconds(1), Duration.ofSeconds(5), 1, 0));
+    }
+}
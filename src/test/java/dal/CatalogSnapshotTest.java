@@ -0,0 +1,131 @@
+package dal;
+
+import bll.MovieService;
+import model.Category;
+import model.CategoryRegistry;
+import model.Movie;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CatalogSnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    // a database that is never reachable, counting how often it was asked
+    private final AtomicInteger connectionAttempts = new AtomicInteger();
+
+    @Test
+    void roundTripKeepsMoviesAndLinks() throws IOException {
+        Path file = dir.resolve("catalog.snapshot");
+        CatalogSnapshot.write(file, CatalogSnapshot.encode(42, List.of(drama(), comedy()), sampleMovies()));
+
+        CategoryRegistry registry = new CategoryRegistry();
+        CatalogSnapshot snapshot = CatalogSnapshot.read(file, registry);
+
+        assertEquals(42, snapshot.syncVersion());
+        assertEquals(2, snapshot.categories().size());
+        assertEquals(2, snapshot.movies().size());
+
+        Movie first = snapshot.movies().get(0);
+        assertEquals(1, first.getId());
+        assertEquals("Heat", first.getTitle());
+        assertEquals(8.3, first.getImdbRating());
+        assertEquals(9.0, first.getPersonalRating());
+        assertEquals(LocalDate.of(2024, 5, 1), first.getLastView());
+        assertEquals("C:\\Movies\\Heat.mp4", first.getFilePath());
+        assertEquals(2, first.getCategories().size());
+        // links resolve to the one shared object per category
+        assertSame(registry.get(1), first.getCategories().get(0));
+
+        Movie second = snapshot.movies().get(1);
+        assertNull(second.getLastView());
+        assertNull(second.getFilePath());
+    }
+
+    @Test
+    void damagedFileIsRejected() throws IOException {
+        Path file = dir.resolve("catalog.snapshot");
+        byte[] encoded = CatalogSnapshot.encode(7, List.of(drama()), sampleMovies());
+        encoded[20] ^= 0x01;   // inside the data, so the CRC no longer matches
+        Files.write(file, encoded);
+
+        assertThrows(IOException.class, () -> CatalogSnapshot.read(file, new CategoryRegistry()));
+    }
+
+    @Test
+    void damagedSnapshotFallsBackToTheDatabaseLoad() throws IOException {
+        Path file = dir.resolve("catalog.snapshot");
+        byte[] encoded = CatalogSnapshot.encode(7, List.of(drama()), sampleMovies());
+        encoded[encoded.length - 1] ^= 0x01;   // the CRC itself
+        Files.write(file, encoded);
+
+        MovieService service = new MovieService(unreachableDatabase(), file);
+        CompletionException error = assertThrows(CompletionException.class, () -> service.loadAllAsync().join());
+
+        assertInstanceOf(SQLException.class, error.getCause());
+        assertEquals(1, connectionAttempts.get());
+    }
+
+    @Test
+    void intactSnapshotLoadsWithoutTheDatabase() throws IOException {
+        Path file = dir.resolve("catalog.snapshot");
+        CatalogSnapshot.write(file, CatalogSnapshot.encode(7, List.of(drama(), comedy()), sampleMovies()));
+
+        MovieService service = new MovieService(unreachableDatabase(), file);
+        service.loadAllAsync().join();
+
+        assertEquals(2, service.getMovies().size());
+        assertEquals(0, connectionAttempts.get());
+    }
+
+    private ConnectionManager unreachableDatabase() {
+        DataSource dataSource = (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{DataSource.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("getConnection")) {
+                        connectionAttempts.incrementAndGet();
+                        throw new SQLException("No database in this test", "08001");
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        return new ConnectionManager(dataSource, new ConnectionManager.PoolConfig(
+                0, 2, Duration.ofMinutes(1), Duration.ofSeconds(1), Duration.ofSeconds(5), 1, 0));
+    }
+
+    private static Category drama() {
+        return new Category(1, "Drama");
+    }
+
+    private static Category comedy() {
+        return new Category(2, "Comedy");
+    }
+
+    private static List<Movie> sampleMovies() {
+        Movie heat = new Movie(1, "Heat", 8.3, "C:\\Movies\\Heat.mp4");
+        heat.setPersonalRating(9.0);
+        heat.setLastView(LocalDate.of(2024, 5, 1));
+        heat.addCategory(drama());
+        heat.addCategory(comedy());
+
+        Movie unseen = new Movie(2, "Unseen", 6.1, null);
+        return List.of(heat, unseen);
+    }
+}
@@ -0,0 +1,123 @@
+package dal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConnectionManagerTest {
+
+    private final AtomicInteger opened = new AtomicInteger();
+    private final AtomicInteger closed = new AtomicInteger();
+    private ConnectionManager cm;
+
+    @AfterEach
+    void shutDown() {
+        cm.shutdown();
+    }
+
+    @Test
+    void warmUpFillsThePoolToMinSize() throws SQLException {
+        cm = new ConnectionManager(fakeDatabase(), config(3));
+
+        cm.warmUp();
+
+        assertEquals(3, cm.getIdleCount());
+        assertEquals(3, opened.get());
+    }
+
+    @Test
+    void borrowedConnectionsCountTowardsMinSize() throws SQLException {
+        cm = new ConnectionManager(fakeDatabase(), config(2));
+        cm.warmUp();
+
+        try (Connection borrowed = cm.getConnection()) {
+            cm.warmUp();
+            assertEquals(1, cm.getIdleCount());
+            assertFalse(borrowed.isClosed());
+        }
+        assertEquals(2, opened.get());
+    }
+
+    @Test
+    void statementsAndUnwrapKeepThePhysicalConnectionInThePool() throws SQLException {
+        cm = new ConnectionManager(fakeDatabase(), config(0));
+
+        Connection conn = cm.getConnection();
+        PreparedStatement ps = conn.prepareStatement("SELECT 1");
+
+        assertSame(conn, ps.getConnection());
+        assertSame(conn, conn.unwrap(Connection.class));
+        assertSame(ps, ps.unwrap(PreparedStatement.class));
+        assertFalse(conn.isWrapperFor(FakeDriverConnection.class));
+        assertThrows(SQLException.class, () -> conn.unwrap(FakeDriverConnection.class));
+
+        ps.getConnection().close();
+        assertTrue(conn.isClosed());
+        assertEquals(0, closed.get());   // back in the pool, not closed
+        assertEquals(1, cm.getIdleCount());
+    }
+
+    // stands in for a driver specific interface like ISQLServerConnection
+    interface FakeDriverConnection extends Connection {
+    }
+
+    private DataSource fakeDatabase() {
+        return (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{DataSource.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("getConnection")) {
+                        opened.incrementAndGet();
+                        return physicalConnection();
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private Connection physicalConnection() {
+        boolean[] isClosed = {false};
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{FakeDriverConnection.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "prepareStatement" -> physicalStatement((Connection) proxy);
+                    case "unwrap" -> proxy;
+                    case "isWrapperFor" -> true;
+                    case "getAutoCommit", "isValid" -> true;
+                    case "isClosed" -> isClosed[0];
+                    case "close" -> {
+                        isClosed[0] = true;
+                        closed.incrementAndGet();
+                        yield null;
+                    }
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private PreparedStatement physicalStatement(Connection physical) {
+        return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "getConnection" -> physical;
+                    case "unwrap" -> proxy;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static ConnectionManager.PoolConfig config(int minSize) {
+        // never started, so only the test opens connections
+        return new ConnectionManager.PoolConfig(
+                minSize, 5, Duration.ofHours(1), Duration.ofSeconds(1), Duration.ofSeconds(5), 1, 0);
+    }
+}
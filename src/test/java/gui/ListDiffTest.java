@@ -0,0 +1,78 @@
+package gui;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ListDiffTest {
+
+    // counts change notifications, which is what makes a ListView redraw
+    private static int apply(ObservableList<String> items, List<String> target) {
+        int[] changes = {0};
+        ListChangeListener<String> listener = change -> changes[0]++;
+        items.addListener(listener);
+        ListDiff.apply(items, target);
+        items.removeListener(listener);
+        return changes[0];
+    }
+
+    @Test
+    void reorderFallsBackToOneSetAll() {
+        ObservableList<String> items = FXCollections.observableArrayList("a", "b", "c");
+
+        int changes = apply(items, List.of("c", "a", "b"));
+
+        assertEquals(List.of("c", "a", "b"), items);
+        assertEquals(1, changes);
+    }
+
+    @Test
+    void insertsRunsAtHeadAndTailAroundTheKeptItems() {
+        String c = "c";
+        String d = "d";
+        ObservableList<String> items = FXCollections.observableArrayList(c, d);
+
+        int changes = apply(items, List.of("a", "b", c, d, "e", "f"));
+
+        assertEquals(List.of("a", "b", "c", "d", "e", "f"), items);
+        assertSame(c, items.get(2));
+        assertSame(d, items.get(3));
+        assertEquals(2, changes);   // one insert per run
+    }
+
+    @Test
+    void removesEachRunOfUnwantedItemsAtOnce() {
+        ObservableList<String> items = FXCollections.observableArrayList("a", "b", "c", "d", "e", "f");
+
+        int changes = apply(items, List.of("a", "d", "f"));
+
+        assertEquals(List.of("a", "d", "f"), items);
+        assertEquals(2, changes);   // "b", "c" and "e"
+    }
+
+    @Test
+    void removesEverything() {
+        ObservableList<String> items = FXCollections.observableArrayList("a", "b", "c");
+
+        ListDiff.apply(items, List.of());
+
+        assertTrue(items.isEmpty());
+    }
+
+    @Test
+    void fillsAnEmptyList() {
+        ObservableList<String> items = FXCollections.observableArrayList();
+
+        int changes = apply(items, List.of("a", "b"));
+
+        assertEquals(List.of("a", "b"), items);
+        assertEquals(1, changes);
+    }
+}
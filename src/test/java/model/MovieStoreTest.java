@@ -0,0 +1,131 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MovieStoreTest {
+
+    private final Category drama = new Category(1, "Drama");
+    private final Category comedy = new Category(2, "Comedy");
+
+    @Test
+    void attachedMovieReadsAndWritesThroughTheStore() {
+        MovieStore store = new MovieStore();
+        Movie movie = movie(1, "Heat", "C:\\Movies\\Heat.mp4", drama);
+        store.attach(movie);
+
+        movie.setPersonalRating(7.5);
+        movie.setLastView(LocalDate.of(2023, 1, 2));
+        movie.addCategory(comedy);
+        movie.setFilePath("D:/Films/Heat (1995).mp4");
+
+        assertEquals(1, store.size());
+        assertEquals("Heat", movie.getTitle());
+        assertEquals(7.5, movie.getPersonalRating());
+        assertEquals(LocalDate.of(2023, 1, 2), movie.getLastView());
+        assertEquals("D:/Films/Heat (1995).mp4", movie.getFilePath());
+        assertTrue(movie.hasCategory(drama));
+        assertTrue(movie.hasCategory(comedy));
+    }
+
+    @Test
+    void detachedViewKeepsItsValuesAfterItsRowIsReused() {
+        MovieStore store = new MovieStore();
+        Movie heat = movie(1, "Heat", "C:\\Movies\\Heat.mp4", drama);
+        Movie alien = movie(2, "Alien", "C:\\Movies\\Alien.mp4", comedy);
+        store.attach(heat);
+        store.attach(alien);
+        heat.setPersonalRating(9.0);
+        heat.setLastView(LocalDate.of(2024, 5, 1));
+        heat.setFileStatus(FileStatus.MISSING);
+
+        store.detach(heat);
+        Movie ronin = movie(3, "Ronin", "E:\\Ronin.mp4");
+        store.attach(ronin);   // takes the row heat left
+
+        assertEquals(2, store.size());
+        assertEquals(1, heat.getId());
+        assertEquals("Heat", heat.getTitle());
+        assertEquals(9.0, heat.getPersonalRating());
+        assertEquals(LocalDate.of(2024, 5, 1), heat.getLastView());
+        assertEquals("C:\\Movies\\Heat.mp4", heat.getFilePath());
+        assertEquals(FileStatus.MISSING, heat.getFileStatus());
+        assertEquals(List.of(drama), heat.getCategories());
+
+        // the reused row starts clean for the new movie
+        assertEquals(3, ronin.getId());
+        assertEquals("Ronin", ronin.getTitle());
+        assertNull(ronin.getLastView());
+        assertEquals(FileStatus.UNKNOWN, ronin.getFileStatus());
+        assertFalse(ronin.hasCategory(drama));
+        assertTrue(ronin.getCategories().isEmpty());
+
+        // changing the detached view does not touch the store
+        heat.setTitle("Heat (1995)");
+        assertEquals("Ronin", ronin.getTitle());
+        assertEquals("Alien", alien.getTitle());
+    }
+
+    @Test
+    void pathsWithoutFolderAndNullPathsSurvive() {
+        MovieStore store = new MovieStore();
+        Movie bare = movie(1, "Bare", "bare.mp4");
+        Movie none = movie(2, "None", null);
+        store.attach(bare);
+        store.attach(none);
+
+        assertEquals("bare.mp4", bare.getFilePath());
+        assertNull(none.getFilePath());
+    }
+
+    @Test
+    void growsPastItsInitialCapacity() {
+        MovieStore store = new MovieStore(16);
+        Movie[] movies = new Movie[100];
+        for (int i = 0; i < movies.length; i++) {
+            movies[i] = movie(i, "Movie " + i, "C:\\Movies\\" + i + ".mp4", i % 2 == 0 ? drama : comedy);
+            store.attach(movies[i]);
+        }
+
+        assertEquals(100, store.size());
+        assertEquals("Movie 99", movies[99].getTitle());
+        assertEquals("C:\\Movies\\42.mp4", movies[42].getFilePath());
+        assertTrue(movies[42].hasCategory(drama));
+        assertFalse(movies[43].hasCategory(drama));
+    }
+
+    @Test
+    void addingACategoryTwiceKeepsItOnceAttachedOrNot() {
+        MovieStore store = new MovieStore();
+        Movie attached = movie(1, "Heat", "C:\\Movies\\Heat.mp4", drama);
+        Movie detached = movie(2, "Alien", "C:\\Movies\\Alien.mp4", drama);
+        store.attach(attached);
+
+        attached.addCategory(drama);
+        detached.addCategory(drama);
+
+        assertEquals(List.of(drama), attached.getCategories());
+        assertEquals(List.of(drama), detached.getCategories());
+
+        // one remove takes it off either way
+        attached.removeCategory(drama);
+        detached.removeCategory(drama);
+        assertFalse(attached.hasCategory(drama));
+        assertFalse(detached.hasCategory(drama));
+    }
+
+    private static Movie movie(int id, String title, String filePath, Category... categories) {
+        Movie movie = new Movie(id, title, 7.0, filePath);
+        for (Category category : categories) {
+            movie.addCategory(category);
+        }
+        return movie;
+    }
+}